@@ -0,0 +1,83 @@
+package org.jenkinsci.plugins.pretestedintegration.benchmark;
+
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+import hudson.plugins.git.Branch;
+import hudson.plugins.git.Revision;
+import hudson.plugins.git.UserRemoteConfig;
+import hudson.plugins.git.util.Build;
+import hudson.plugins.git.util.BuildData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.jenkinsci.plugins.pretestedintegration.IntegrationContext;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.GitBridge;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.SquashCommitStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Benchmarks of the parts of GitBridge and the strategies that run on the master.
+ * The IntegrationContext of the mocked build is cleared before each lookup, so the BuildData is searched on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GitBridgeBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int buildDatas;
+
+    private final SquashCommitStrategy strategy = new SquashCommitStrategy();
+    private GitBridge bridge;
+    private AbstractBuild<?, ?> build;
+
+    @Setup
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setUp() throws Exception {
+        bridge = new GitBridge(strategy, "master", "origin");
+        List<BuildData> actions = new ArrayList<>();
+        for (int i = 0; i < buildDatas; i++) {
+            // Only the last BuildData is for the integration repository
+            String remote = i == buildDatas - 1 ? "origin" : "other" + i;
+            ObjectId sha = ObjectId.fromString(String.format("%040x", i + 1));
+            BuildData data = new BuildData("scm" + i, Collections.singletonList(new UserRemoteConfig("file:///repo" + i + ".git", remote, null, null)));
+            data.saveBuild(new Build(new Revision(sha, Collections.singletonList(new Branch(remote + "/ready/feature" + i, sha))), i + 1, Result.SUCCESS));
+            actions.add(data);
+        }
+        AbstractBuild mockBuild = mock(AbstractBuild.class);
+        when(mockBuild.getActions(BuildData.class)).thenReturn(actions);
+        when(mockBuild.getEnvironment(TaskListener.NULL)).thenReturn(new EnvVars());
+        build = mockBuild;
+    }
+
+    @Benchmark
+    public BuildData findRelevantBuildData() throws Exception {
+        IntegrationContext.clear(build);
+        return bridge.findRelevantBuildData(build, TaskListener.NULL);
+    }
+
+    @Benchmark
+    public PersonIdent getPersonIdent() {
+        return strategy.getPersonIdent("Ready Author <ready@example.com> 1442321765 +0200");
+    }
+}
@@ -0,0 +1,136 @@
+package org.jenkinsci.plugins.pretestedintegration.benchmark;
+
+import hudson.model.TaskListener;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.jenkinsci.plugins.pretestedintegration.integration.scm.git.SyntheticRepositoryGenerator;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.BranchAnalysis;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.BranchAnalysisCallback;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.FindCommitAuthorCallback;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.GetAllCommitsFromBranchCallback;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.GetCommitCountFromBranchCallback;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.InMemoryMergeCallback;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.InMemoryMergeResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the Git callbacks the strategies run on the agent, invoked directly on a generated repository.
+ * The in-memory merges are the merge paths of the Squash and Accumulated strategies,
+ * without the Jenkins build around them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GitCallbackBenchmark {
+
+    private static final PersonIdent AUTHOR = new PersonIdent("Ready Author", "ready@example.com");
+
+    @Param({"100", "1000", "50000"})
+    public int commits;
+
+    @Param({"100", "10000"})
+    public int files;
+
+    @Param({"1000"})
+    public int history;
+
+    private File dir;
+    private Repository repository;
+    private ObjectId readyTip;
+    private String readyBranch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("preint-benchmark").toFile();
+        SyntheticRepositoryGenerator generator = new SyntheticRepositoryGenerator()
+                .setHistoryDepth(history)
+                .setBranchCount(1)
+                .setBranchDepth(commits)
+                .setFileCount(files)
+                .setPack(true);
+        repository = generator.generate(new File(dir, "repo.git"));
+        readyBranch = generator.getBranchName(0);
+        readyTip = repository.resolve(readyBranch);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        repository.close();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public BranchAnalysis analyzeBranch() throws Exception {
+        return new BranchAnalysisCallback(TaskListener.NULL, readyTip, "master", false, 0, null).invoke(repository, null);
+    }
+
+    /**
+     * The analysis the strategies make to tell a single commit from several.
+     */
+    @Benchmark
+    public BranchAnalysis analyzeBranchUpToTwo() throws Exception {
+        return new BranchAnalysisCallback(TaskListener.NULL, readyTip, "master", false, 2, "origin/" + readyBranch).invoke(repository, null);
+    }
+
+    /**
+     * The walks the branch analysis replaced, one per callback, as a baseline for the analysis.
+     */
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public Integer getCommitCountFromBranch() throws Exception {
+        return new GetCommitCountFromBranchCallback(TaskListener.NULL, readyTip, "master").invoke(repository, null);
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public Integer getCommitCountFromBranchUpToTwo() throws Exception {
+        return new GetCommitCountFromBranchCallback(TaskListener.NULL, readyTip, "master", 2).invoke(repository, null);
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public String getAllCommitsFromBranch() throws Exception {
+        return new GetAllCommitsFromBranchCallback(TaskListener.NULL, readyTip, "master").invoke(repository, null);
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public String findCommitAuthor() throws Exception {
+        return new FindCommitAuthorCallback(TaskListener.NULL, readyTip).invoke(repository, null);
+    }
+
+    @Benchmark
+    public BranchAnalysis analyzeBranchWithCommitLog() throws Exception {
+        return new BranchAnalysisCallback(TaskListener.NULL, readyTip, "master", true, 0, null).invoke(repository, null);
+    }
+
+    @Benchmark
+    public InMemoryMergeResult squashMerge() throws Exception {
+        return new InMemoryMergeCallback(TaskListener.NULL, readyTip, true, "Squashed commit of the following:\n\n", null, AUTHOR, AUTHOR).invoke(repository, null);
+    }
+
+    @Benchmark
+    public InMemoryMergeResult accumulatedMerge() throws Exception {
+        return new InMemoryMergeCallback(TaskListener.NULL, readyTip, false, "Accumulated commit of the following from branch 'ready':\n\n", null, AUTHOR, AUTHOR).invoke(repository, null);
+    }
+}
@@ -10,6 +10,7 @@ import hudson.model.BuildListener;
 import hudson.model.Describable;
 import hudson.model.Descriptor;
 import hudson.model.Result;
+import hudson.model.TaskListener;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -107,6 +108,66 @@ public abstract class AbstractSCMBridge implements Describable<AbstractSCMBridge
     public void isApplicable(AbstractBuild<?, ?> build, BuildListener listener) throws NothingToDoException, UnsupportedConfigurationException {
     }
 
+    /**
+     * Checks, before anything is checked out, whether the commit can't be integrated because of conflicts.
+     * Throws an exception only when a conflict is certain, e.g. because the same integration already failed to merge,
+     * so the build can fail without preparing the workspace. Conflicts the merge might still resolve are left to it.
+     *
+     * @param build The Build
+     * @param launcher The Launcher
+     * @param listener The BuildListener
+     * @throws IntegrationFailedException
+     * @throws NothingToDoException
+     * @throws UnsupportedConfigurationException
+     */
+    public void checkForConflicts(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws IntegrationFailedException, NothingToDoException, UnsupportedConfigurationException {
+    }
+
+    /**
+     * Makes the integration of a build reachable for the builds that reuse it, on any node.
+     * Used by matrix builds, before any of their configurations start.
+     *
+     * @param build The Build that made the integration
+     * @param launcher The Launcher
+     * @param listener The BuildListener
+     * @return true if other builds can reuse the integration, false if it can't be shared
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public boolean shareIntegration(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws IOException, InterruptedException {
+        return false;
+    }
+
+    /**
+     * Removes whatever {@link #shareIntegration} left behind to share the integration.
+     * Called once the builds reusing the integration are done, whatever their result.
+     *
+     * @param build The Build that made the integration
+     * @param launcher The Launcher
+     * @param listener The BuildListener
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void unshareIntegration(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws IOException, InterruptedException {
+    }
+
+    /**
+     * Prepares the workspace of a build with an integration another build already made and shared,
+     * instead of integrating again. Used by the configurations of a matrix build,
+     * which reuse the integration of the matrix build, as that is the integration it publishes.
+     *
+     * @param build The Build whose workspace to prepare
+     * @param launcher The Launcher
+     * @param listener The BuildListener
+     * @param integrationBuild The Build that made the integration
+     * @return true if the workspace was prepared, false if the integration couldn't be reused
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public boolean reuseIntegration(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener, AbstractBuild<?, ?> integrationBuild) throws IOException, InterruptedException {
+        return false;
+    }
+
     /**
      * Integrates the commit into the integration branch.
      * Uses the selected IntegrationStrategy.
@@ -205,6 +266,20 @@ public abstract class AbstractSCMBridge implements Describable<AbstractSCMBridge
         return branch;
     }
 
+    /**
+     * Returns the expanded environment of the build.
+     * The environment is resolved once per build and shared through the build's IntegrationContext.
+     *
+     * @param build The Build
+     * @param listener The TaskListener
+     * @return the expanded environment of the build
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public EnvVars getEnvironment(AbstractBuild<?, ?> build, TaskListener listener) throws IOException, InterruptedException {
+        return IntegrationContext.of(build).getEnvironment(build, listener);
+    }
+
     /**
      * @param environment The environment to expand the branch in
      * @return The Integration Branch name, expanded using given EnvVars.
@@ -0,0 +1,126 @@
+package org.jenkinsci.plugins.pretestedintegration;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Per-build cache of values that are expensive to resolve and don't change during the integration,
+ * such as the expanded environment, the relevant SCM data and the SCM client.
+ * Kept in memory next to the build rather than in its actions, so nothing ends up in build.xml,
+ * and dropped when the build completes. SCM Bridges and Integration Strategies share one instance per build.
+ */
+public class IntegrationContext {
+
+    /**
+     * The contexts of the running builds. Weak keys, so a build that never completes doesn't leak its context.
+     */
+    private static final Map<AbstractBuild<?, ?>, IntegrationContext> CONTEXTS = new WeakHashMap<>();
+
+    /**
+     * The expanded build environment.
+     */
+    private EnvVars environment;
+
+    /**
+     * Cached values, keyed by their type.
+     */
+    private Map<Class<?>, Object> values;
+
+    /**
+     * Returns the IntegrationContext of the given build, creating a new one if the build has none.
+     * @param build The Build
+     * @return the IntegrationContext of the build
+     */
+    public static IntegrationContext of(AbstractBuild<?, ?> build) {
+        synchronized (CONTEXTS) {
+            IntegrationContext context = CONTEXTS.get(build);
+            if (context == null) {
+                context = new IntegrationContext();
+                CONTEXTS.put(build, context);
+            }
+            return context;
+        }
+    }
+
+    /**
+     * Drops the IntegrationContext of the given build, if it has one.
+     * @param build The Build
+     */
+    public static void clear(AbstractBuild<?, ?> build) {
+        synchronized (CONTEXTS) {
+            CONTEXTS.remove(build);
+        }
+    }
+
+    /**
+     * Returns the expanded environment of the build.
+     * Resolved once, since every call to AbstractBuild.getEnvironment is a round-trip to the node.
+     * @param build The Build
+     * @param listener The TaskListener
+     * @return the expanded environment of the build
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public synchronized EnvVars getEnvironment(AbstractBuild<?, ?> build, TaskListener listener) throws IOException, InterruptedException {
+        if (environment == null) {
+            environment = build.getEnvironment(listener);
+        }
+        return environment;
+    }
+
+    /**
+     * @param <T> The type of the value
+     * @param type The type of the value, used as key
+     * @return the cached value of the given type, or null if none is cached
+     */
+    public synchronized <T> T get(Class<T> type) {
+        return values == null ? null : type.cast(values.get(type));
+    }
+
+    /**
+     * Caches a value for the remainder of the build.
+     * @param <T> The type of the value
+     * @param type The type of the value, used as key
+     * @param value The value to cache
+     * @return the given value
+     */
+    public synchronized <T> T put(Class<T> type, T value) {
+        if (values == null) {
+            values = new HashMap<>();
+        }
+        values.put(type, value);
+        return value;
+    }
+
+    /**
+     * Drops a cached value, so it is resolved again on next use.
+     * @param type The type of the value, used as key
+     */
+    public synchronized void remove(Class<?> type) {
+        if (values != null) {
+            values.remove(type);
+        }
+    }
+
+    /**
+     * Drops the context of a build once it has completed, publishers included.
+     */
+    @Extension
+    public static class Cleaner extends RunListener<AbstractBuild<?, ?>> {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onCompleted(AbstractBuild<?, ?> build, TaskListener listener) {
+            clear(build);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.jenkinsci.plugins.pretestedintegration;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.RootAction;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.StaplerProxy;
+
+/**
+ * Dashboard summarizing the integrations of all jobs on this Jenkins instance,
+ * for the last 24 hours, 7 days and 30 days. See IntegrationStatistics for where the numbers come from.
+ * Requires overall read permission, and only counts the integrations of jobs the user may read.
+ */
+@Extension
+public class IntegrationDashboard implements RootAction, StaplerProxy {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getIconFileName() {
+        return Jenkins.getInstance().hasPermission(Jenkins.READ) ? "graph.png" : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDisplayName() {
+        return "Pretested Integration";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getUrlName() {
+        return "pretested-integration";
+    }
+
+    /**
+     * Checks the permission of the user before showing the dashboard.
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getTarget() {
+        Jenkins.getInstance().checkPermission(Jenkins.READ);
+        return this;
+    }
+
+    /**
+     * @return the summaries of the last 24 hours, 7 days and 30 days
+     */
+    public List<IntegrationStatistics.Summary> getSummaries() {
+        return IntegrationStatistics.get().getSummaries(new ReadableJobs());
+    }
+
+    /**
+     * @return the trends of the last 24 hours by hour, and of the last 7 and 30 days by day
+     */
+    public List<IntegrationStatistics.Trend> getTrends() {
+        return IntegrationStatistics.get().getTrends(new ReadableJobs());
+    }
+
+    /**
+     * @return the number of builds per job counted from before Jenkins started
+     */
+    public int getSeedBuilds() {
+        return IntegrationStatistics.SEED_BUILDS;
+    }
+
+    /**
+     * Includes the records of the jobs the current user may read.
+     */
+    private static final class ReadableJobs implements IntegrationStatistics.Filter {
+
+        private final Map<String, Boolean> readable = new HashMap<>();
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean include(IntegrationStatistics.Record record) {
+            Boolean include = readable.get(record.getJob());
+            if (include == null) {
+                Item job = Jenkins.getInstance().getItemByFullName(record.getJob());
+                include = job != null && job.hasPermission(Item.READ);
+                readable.put(record.getJob(), include);
+            }
+            return include;
+        }
+    }
+}
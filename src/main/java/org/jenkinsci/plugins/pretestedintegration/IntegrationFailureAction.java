@@ -0,0 +1,41 @@
+package org.jenkinsci.plugins.pretestedintegration;
+
+import hudson.model.AbstractBuild;
+import hudson.model.InvisibleAction;
+
+/**
+ * Records why the integration of a build failed, by the type of the exception that stopped it.
+ * Only the first failure of a build is recorded.
+ */
+public class IntegrationFailureAction extends InvisibleAction {
+
+    private final String cause;
+
+    /**
+     * Constructor for IntegrationFailureAction
+     * @param cause The simple class name of the exception that stopped the integration
+     */
+    public IntegrationFailureAction(String cause) {
+        this.cause = cause;
+    }
+
+    /**
+     * Records the failure on the build, unless a failure was already recorded.
+     * @param build The Build
+     * @param ex The exception that stopped the integration
+     */
+    public static void record(AbstractBuild<?, ?> build, Exception ex) {
+        synchronized (build) {
+            if (build.getAction(IntegrationFailureAction.class) == null) {
+                build.addAction(new IntegrationFailureAction(ex.getClass().getSimpleName()));
+            }
+        }
+    }
+
+    /**
+     * @return the simple class name of the exception that stopped the integration
+     */
+    public String getCause() {
+        return cause;
+    }
+}
@@ -0,0 +1,129 @@
+package org.jenkinsci.plugins.pretestedintegration;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A short, exclusive lease on an integration branch, held while a build publishes its integration.
+ * Builds of any job on this Jenkins instance that publish to the same branch of the same remote
+ * take turns in the order they asked, instead of racing each other's pushes.
+ * Leases are held by the thread that acquired them, and must be released by it.
+ * The lock of a branch is dropped when its lease is released and no one waits for it.
+ */
+public final class IntegrationLease {
+
+    /**
+     * How long to wait for a lease before giving up, in milliseconds.
+     */
+    public static final long TIMEOUT = Long.getLong(IntegrationLease.class.getName() + ".timeout", 10 * 60 * 1000);
+
+    private static final ConcurrentMap<String, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+
+    private final String key;
+    private final ReentrantLock lock;
+    private final long waitMillis;
+    private final long acquired;
+    private long holdMillis = -1;
+
+    private IntegrationLease(String key, ReentrantLock lock, long waitMillis, long acquired) {
+        this.key = key;
+        this.lock = lock;
+        this.waitMillis = waitMillis;
+        this.acquired = acquired;
+    }
+
+    /**
+     * Builds the key of a lease.
+     * @param remoteUrl The URL of the integration repository
+     * @param branch The name of the integration branch
+     * @return the key
+     */
+    public static String key(String remoteUrl, String branch) {
+        return remoteUrl + "#" + branch;
+    }
+
+    /**
+     * Waits for the lease on the given key. Waiting builds get the lease in the order they asked for it.
+     * @param key The key of the lease, see {@link #key(String, String)}
+     * @param timeoutMillis How long to wait, in milliseconds
+     * @return the lease, or null if it couldn't be acquired in time
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public static IntegrationLease acquire(String key, long timeoutMillis) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        while (true) {
+            ReentrantLock lock = LOCKS.get(key);
+            if (lock == null) {
+                ReentrantLock created = new ReentrantLock(true);
+                lock = LOCKS.putIfAbsent(key, created);
+                if (lock == null) {
+                    lock = created;
+                }
+            }
+            long remaining = Math.max(0, start + timeoutMillis - System.currentTimeMillis());
+            if (!lock.tryLock(remaining, TimeUnit.MILLISECONDS)) {
+                return null;
+            }
+            if (LOCKS.get(key) == lock) {
+                long now = System.currentTimeMillis();
+                return new IntegrationLease(key, lock, now - start, now);
+            }
+            // The lock was dropped by its last holder while this thread was getting it, take the current one
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param key The key of the lease
+     * @return the number of builds waiting for the lease
+     */
+    public static int getQueueLength(String key) {
+        ReentrantLock lock = LOCKS.get(key);
+        return lock == null ? 0 : lock.getQueueLength();
+    }
+
+    /**
+     * @return the number of integration branches whose lease is held or waited for
+     */
+    public static int getLeaseCount() {
+        return LOCKS.size();
+    }
+
+    /**
+     * Releases the lease. Does nothing if it was already released.
+     * Drops the lock of the branch when no one waits for it. That is done while still holding it,
+     * so a build that gets the dropped lock afterwards notices and takes the current lock instead.
+     */
+    public void release() {
+        if (holdMillis < 0) {
+            holdMillis = System.currentTimeMillis() - acquired;
+            if (!lock.hasQueuedThreads()) {
+                LOCKS.remove(key, lock);
+            }
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the key of the lease
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the time spent waiting for the lease, in milliseconds
+     */
+    public long getWaitMillis() {
+        return waitMillis;
+    }
+
+    /**
+     * @return the time the lease was held, in milliseconds, or -1 while it is still held
+     */
+    public long getHoldMillis() {
+        return holdMillis;
+    }
+}
@@ -0,0 +1,246 @@
+package org.jenkinsci.plugins.pretestedintegration;
+
+import hudson.XmlFile;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+
+/**
+ * Remembers the outcome of earlier integrations, keyed by the integration repository, the integration branch head,
+ * the ready branch tip and the strategy.
+ * With identical inputs a merge gives the same result, so a known merge failure can fail the build at once.
+ * Stored under JENKINS_HOME, bounded in size, least recently used entries are evicted first.
+ * Entries expire after {@link #MAX_AGE} milliseconds, so an outcome that depended on the environment isn't repeated forever.
+ * Changes are saved in the background, at most once per {@link #SAVE_DELAY} milliseconds.
+ */
+public class IntegrationResultCache {
+
+    private static final Logger LOGGER = Logger.getLogger(IntegrationResultCache.class.getName());
+
+    /**
+     * Maximum number of remembered integrations.
+     */
+    private static final int MAX_ENTRIES = Integer.getInteger(IntegrationResultCache.class.getName() + ".maxEntries", 1000);
+
+    /**
+     * How long an outcome is remembered, in milliseconds.
+     */
+    private static final long MAX_AGE = Long.getLong(IntegrationResultCache.class.getName() + ".maxAge", TimeUnit.DAYS.toMillis(1));
+
+    /**
+     * How long changes are collected before the cache is saved, in milliseconds.
+     */
+    private static final long SAVE_DELAY = Long.getLong(IntegrationResultCache.class.getName() + ".saveDelay", 5000);
+
+    private static IntegrationResultCache instance;
+
+    /**
+     * The possible outcomes of an integration.
+     */
+    public enum Outcome {
+        /**
+         * The changes couldn't be merged.
+         */
+        MERGE_FAILED,
+        /**
+         * The changes were merged and the build was good enough to publish them.
+         */
+        BUILD_SUCCEEDED,
+        /**
+         * The changes were merged but the build wasn't good enough to publish them.
+         */
+        BUILD_FAILED
+    }
+
+    /**
+     * The outcome of one integration.
+     */
+    public static final class Entry {
+
+        private final String key;
+        private final Outcome outcome;
+        private final String commit;
+        private final String build;
+        private final long recorded;
+
+        /**
+         * Constructor for Entry
+         * @param key The key of the integration
+         * @param outcome The outcome of the integration
+         * @param commit The integration commit, or null if none was made
+         * @param build The full display name of the build that did the integration
+         */
+        public Entry(String key, Outcome outcome, String commit, String build) {
+            this.key = key;
+            this.outcome = outcome;
+            this.commit = commit;
+            this.build = build;
+            this.recorded = System.currentTimeMillis();
+        }
+
+        /**
+         * @return the key of the integration
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return the outcome of the integration
+         */
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * @return the integration commit, or null if none was made
+         */
+        public String getCommit() {
+            return commit;
+        }
+
+        /**
+         * @return the full display name of the build that did the integration
+         */
+        public String getBuild() {
+            return build;
+        }
+
+        /**
+         * @return when the outcome was recorded, in milliseconds since the epoch
+         */
+        public long getRecorded() {
+            return recorded;
+        }
+    }
+
+    /**
+     * The entries, least recently used first. Only used for persisting.
+     */
+    private List<Entry> entries = new ArrayList<>();
+
+    private transient LinkedHashMap<String, Entry> index;
+    private transient XmlFile file;
+    private transient boolean saveScheduled;
+
+    /**
+     * @return the cache of this Jenkins instance, loaded from disk on first use
+     */
+    public static synchronized IntegrationResultCache get() {
+        File location = new File(Jenkins.getInstance().getRootDir(), IntegrationResultCache.class.getName() + ".xml");
+        if (instance == null || !instance.file.getFile().equals(location)) {
+            XmlFile file = new XmlFile(location);
+            IntegrationResultCache cache = null;
+            if (file.exists()) {
+                try {
+                    cache = (IntegrationResultCache) file.read();
+                } catch (IOException | ClassCastException ex) {
+                    LOGGER.log(Level.WARNING, "Failed to load the integration result cache, starting empty", ex);
+                }
+            }
+            instance = cache == null ? new IntegrationResultCache() : cache;
+            instance.file = file;
+        }
+        return instance;
+    }
+
+    /**
+     * Builds the key of an integration.
+     * @param repository The URL of the integration repository
+     * @param integrationHead The commit the integration branch pointed to before the integration
+     * @param tip The commit of the ready branch
+     * @param strategy The class name of the IntegrationStrategy
+     * @return the key
+     */
+    public static String key(String repository, String integrationHead, String tip, String strategy) {
+        return repository + ":" + integrationHead + ":" + tip + ":" + strategy;
+    }
+
+    /**
+     * @param key The key of the integration
+     * @return the remembered outcome, or null if the integration isn't known or its outcome expired
+     */
+    public synchronized Entry lookup(String key) {
+        Entry entry = getIndex().get(key);
+        if (entry != null && System.currentTimeMillis() - entry.getRecorded() > MAX_AGE) {
+            forget(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Forgets the outcome of an integration, so the next build integrates it again.
+     * @param key The key of the integration
+     */
+    public synchronized void forget(String key) {
+        if (getIndex().remove(key) != null) {
+            scheduleSave();
+        }
+    }
+
+    /**
+     * Remembers the outcome of an integration.
+     * The cache is saved shortly after, unless the outcome was already known and hasn't expired.
+     * @param entry The outcome of the integration
+     */
+    public synchronized void record(Entry entry) {
+        Entry known = lookup(entry.getKey());
+        if (known != null && known.getOutcome() == entry.getOutcome()
+                && (known.getCommit() == null ? entry.getCommit() == null : known.getCommit().equals(entry.getCommit()))) {
+            return;
+        }
+        getIndex().put(entry.getKey(), entry);
+        scheduleSave();
+    }
+
+    private void scheduleSave() {
+        if (!saveScheduled) {
+            saveScheduled = true;
+            Timer.get().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    save();
+                }
+            }, SAVE_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Saves the cache now.
+     */
+    public synchronized void save() {
+        saveScheduled = false;
+        entries = new ArrayList<>(getIndex().values());
+        try {
+            file.write(this);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Failed to save the integration result cache", ex);
+        }
+    }
+
+    private LinkedHashMap<String, Entry> getIndex() {
+        if (index == null) {
+            index = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+            if (entries != null) {
+                for (Entry entry : entries) {
+                    index.put(entry.getKey(), entry);
+                }
+            }
+        }
+        return index;
+    }
+}
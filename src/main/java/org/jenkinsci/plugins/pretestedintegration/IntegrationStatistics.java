@@ -0,0 +1,584 @@
+package org.jenkinsci.plugins.pretestedintegration;
+
+import hudson.Extension;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.matrix.MatrixConfiguration;
+import hudson.matrix.MatrixRun;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.BuildableItemWithBuildWrappers;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.security.ACL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.IntegrationLeaseAction;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.PushRetryAction;
+
+/**
+ * Keeps a bounded in-memory index of completed integrations, for the IntegrationDashboard.
+ * Each integration build adds one record when it completes, built from the actions on the build,
+ * so the dashboard never loads builds from disk. Records older than the longest window, or beyond
+ * the maximum number of records, are dropped.
+ * When Jenkins starts, the index is seeded in the background from the most recent builds of each integration job,
+ * at most {@link #SEED_BUILDS} per job.
+ */
+@Extension
+public class IntegrationStatistics extends RunListener<AbstractBuild<?, ?>> {
+
+    private static final Logger LOGGER = Logger.getLogger(IntegrationStatistics.class.getName());
+
+    /**
+     * Maximum number of records kept.
+     */
+    private static final int MAX_RECORDS = Integer.getInteger(IntegrationStatistics.class.getName() + ".maxRecords", 100000);
+
+    /**
+     * Maximum number of builds per job loaded from disk when Jenkins starts.
+     */
+    public static final int SEED_BUILDS = Integer.getInteger(IntegrationStatistics.class.getName() + ".seedBuilds", 100);
+
+    /**
+     * The windows the dashboard summarizes, longest last.
+     */
+    static final List<Long> WINDOWS = Collections.unmodifiableList(Arrays.asList(TimeUnit.HOURS.toMillis(24), TimeUnit.DAYS.toMillis(7), TimeUnit.DAYS.toMillis(30)));
+
+    /**
+     * The length of the trend buckets of each window.
+     */
+    static final List<Long> BUCKETS = Collections.unmodifiableList(Arrays.asList(TimeUnit.HOURS.toMillis(1), TimeUnit.DAYS.toMillis(1), TimeUnit.DAYS.toMillis(1)));
+
+    /**
+     * The records, oldest first.
+     */
+    private final LinkedList<Record> records = new LinkedList<>();
+
+    /**
+     * The builds recorded as they completed while the index is being seeded, so seeding doesn't add them again.
+     * Null once the index is seeded.
+     */
+    private Set<String> recordedWhileSeeding = new HashSet<>();
+
+    /**
+     * @return the instance registered with Jenkins
+     */
+    public static IntegrationStatistics get() {
+        return RunListener.all().get(IntegrationStatistics.class);
+    }
+
+    /**
+     * Adds a record for every completed integration build.
+     * Builds of matrix configurations are left out, as their matrix build is recorded.
+     * {@inheritDoc}
+     */
+    @Override
+    public void onCompleted(AbstractBuild<?, ?> build, TaskListener listener) {
+        if (build instanceof MatrixRun || build.getAction(IntegrationTimingAction.class) == null) {
+            return;
+        }
+        synchronized (this) {
+            if (recordedWhileSeeding != null) {
+                recordedWhileSeeding.add(id(build));
+            }
+        }
+        add(Record.of(build, System.currentTimeMillis()));
+    }
+
+    /**
+     * Seeds the index once the jobs are loaded, on a background thread, so Jenkins doesn't wait for the builds to load.
+     */
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void scheduleSeeding() {
+        Timer.get().submit(new Runnable() {
+            @Override
+            public void run() {
+                seedFromRecentBuilds();
+            }
+        });
+    }
+
+    /**
+     * Seeds the index from the builds that completed within the longest window.
+     * Only jobs using the PretestedIntegrationBuildWrapper are looked at,
+     * and only their most recent {@link #SEED_BUILDS} builds are loaded.
+     */
+    public static void seedFromRecentBuilds() {
+        IntegrationStatistics statistics = get();
+        if (statistics == null) {
+            return;
+        }
+        long oldest = System.currentTimeMillis() - WINDOWS.get(WINDOWS.size() - 1);
+        List<Record> seeded = new ArrayList<>();
+        SecurityContext context = ACL.impersonate(ACL.SYSTEM);
+        try {
+            for (AbstractProject<?, ?> project : Jenkins.getInstance().getAllItems(AbstractProject.class)) {
+                if (project instanceof MatrixConfiguration || !(project instanceof BuildableItemWithBuildWrappers)
+                        || ((BuildableItemWithBuildWrappers) project).getBuildWrappersList().get(PretestedIntegrationBuildWrapper.class) == null) {
+                    continue;
+                }
+                int loaded = 0;
+                for (AbstractBuild<?, ?> build : project.getBuilds()) {
+                    long completed = build.getStartTimeInMillis() + build.getDuration();
+                    if (loaded++ >= SEED_BUILDS || completed < oldest) {
+                        break;
+                    }
+                    // Builds still completing are recorded by onCompleted
+                    if (!build.isLogUpdated() && build.getAction(IntegrationTimingAction.class) != null && !statistics.wasRecorded(build)) {
+                        seeded.add(Record.of(build, completed));
+                    }
+                }
+            }
+        } finally {
+            SecurityContextHolder.setContext(context);
+        }
+        statistics.seed(seeded);
+        LOGGER.log(Level.FINE, "Seeded the integration statistics with {0} builds", seeded.size());
+    }
+
+    /**
+     * @param build The Build
+     * @return true if the build was recorded as it completed while the index is being seeded
+     */
+    private synchronized boolean wasRecorded(AbstractBuild<?, ?> build) {
+        return recordedWhileSeeding != null && recordedWhileSeeding.contains(id(build));
+    }
+
+    /**
+     * @param build The Build
+     * @return the full name of the job and the number of the build
+     */
+    private static String id(AbstractBuild<?, ?> build) {
+        return build.getProject().getFullName() + "#" + build.getNumber();
+    }
+
+    /**
+     * Adds records of builds that completed before the ones already recorded.
+     * @param seeded The records to add, in any order
+     */
+    public synchronized void seed(List<Record> seeded) {
+        recordedWhileSeeding = null;
+        List<Record> sorted = new ArrayList<>(seeded);
+        Collections.sort(sorted, new Comparator<Record>() {
+            @Override
+            public int compare(Record a, Record b) {
+                return Long.compare(a.getCompleted(), b.getCompleted());
+            }
+        });
+        records.addAll(0, sorted);
+        if (!records.isEmpty()) {
+            long oldest = records.getLast().getCompleted() - WINDOWS.get(WINDOWS.size() - 1);
+            while (!records.isEmpty() && (records.size() > MAX_RECORDS || records.getFirst().getCompleted() < oldest)) {
+                records.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Adds a record, dropping records that are too old or too many.
+     * @param record The record to add. Records must be added in the order they completed.
+     */
+    public synchronized void add(Record record) {
+        records.addLast(record);
+        long oldest = record.getCompleted() - WINDOWS.get(WINDOWS.size() - 1);
+        while (!records.isEmpty() && (records.size() > MAX_RECORDS || records.getFirst().getCompleted() < oldest)) {
+            records.removeFirst();
+        }
+    }
+
+    /**
+     * Summarizes the records that completed within the given time before now.
+     * @param windowMillis The length of the window, in milliseconds
+     * @param now The end of the window, in milliseconds since the epoch
+     * @return the summary of the window
+     */
+    public Summary summarize(long windowMillis, long now) {
+        return summarize(windowMillis, now, null);
+    }
+
+    /**
+     * Summarizes the records that completed within the given time before now.
+     * @param windowMillis The length of the window, in milliseconds
+     * @param now The end of the window, in milliseconds since the epoch
+     * @param filter The records to include, or null for all
+     * @return the summary of the window
+     */
+    public Summary summarize(long windowMillis, long now, Filter filter) {
+        return trend(windowMillis, windowMillis, now, filter).get(0);
+    }
+
+    /**
+     * Summarizes the records of a window in buckets of equal length.
+     * @param windowMillis The length of the window, in milliseconds
+     * @param bucketMillis The length of each bucket, in milliseconds. The window is rounded up to whole buckets.
+     * @param now The end of the window, in milliseconds since the epoch
+     * @param filter The records to include, or null for all
+     * @return the summaries of the buckets, oldest first
+     */
+    public synchronized List<Summary> trend(long windowMillis, long bucketMillis, long now, Filter filter) {
+        int bucketCount = (int) ((windowMillis + bucketMillis - 1) / bucketMillis);
+        List<List<Record>> buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.add(new ArrayList<Record>());
+        }
+        for (Record record : records) {
+            long age = now - record.getCompleted();
+            if (age >= 0 && age < bucketCount * bucketMillis && (filter == null || filter.include(record))) {
+                buckets.get(bucketCount - 1 - (int) (age / bucketMillis)).add(record);
+            }
+        }
+        List<Summary> summaries = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            summaries.add(new Summary(bucketMillis, now - (bucketCount - 1 - i) * bucketMillis, buckets.get(i)));
+        }
+        return summaries;
+    }
+
+    /**
+     * @param filter The records to include, or null for all
+     * @return the summaries of the last 24 hours, 7 days and 30 days
+     */
+    public List<Summary> getSummaries(Filter filter) {
+        long now = System.currentTimeMillis();
+        List<Summary> summaries = new ArrayList<>();
+        for (long window : WINDOWS) {
+            summaries.add(summarize(window, now, filter));
+        }
+        return summaries;
+    }
+
+    /**
+     * @param filter The records to include, or null for all
+     * @return the trends of the last 24 hours by hour, and of the last 7 and 30 days by day
+     */
+    public List<Trend> getTrends(Filter filter) {
+        long now = System.currentTimeMillis();
+        List<Trend> trends = new ArrayList<>();
+        for (int i = 0; i < WINDOWS.size(); i++) {
+            trends.add(new Trend(WINDOWS.get(i), trend(WINDOWS.get(i), BUCKETS.get(i), now, filter)));
+        }
+        return trends;
+    }
+
+    /**
+     * Decides which records are summarized, e.g. only those of jobs the current user may see.
+     */
+    public interface Filter {
+
+        /**
+         * @param record The record
+         * @return true if the record is summarized
+         */
+        boolean include(Record record);
+    }
+
+    /**
+     * The summaries of a window, bucket by bucket.
+     */
+    public static final class Trend {
+
+        private final long windowMillis;
+        private final List<Summary> buckets;
+
+        /**
+         * Constructor for Trend
+         * @param windowMillis The length of the window, in milliseconds
+         * @param buckets The summaries of the buckets, oldest first
+         */
+        Trend(long windowMillis, List<Summary> buckets) {
+            this.windowMillis = windowMillis;
+            this.buckets = buckets;
+        }
+
+        /**
+         * @return the length of the window, in hours
+         */
+        public long getWindowHours() {
+            return TimeUnit.MILLISECONDS.toHours(windowMillis);
+        }
+
+        /**
+         * @return the length of each bucket, in hours
+         */
+        public long getBucketHours() {
+            return buckets.isEmpty() ? getWindowHours() : buckets.get(0).getWindowHours();
+        }
+
+        /**
+         * @return the summaries of the buckets, oldest first
+         */
+        public List<Summary> getBuckets() {
+            return Collections.unmodifiableList(buckets);
+        }
+
+        /**
+         * @return the largest number of integrations in a bucket, at least 1, to scale the trend by
+         */
+        public int getMaxIntegrations() {
+            int max = 1;
+            for (Summary bucket : buckets) {
+                max = Math.max(max, bucket.getIntegrations());
+            }
+            return max;
+        }
+    }
+
+    /**
+     * What the dashboard needs to know about one completed integration.
+     */
+    public static final class Record {
+
+        private final long completed;
+        private final String job;
+        private final String result;
+        private final String failureCause;
+        private final long leadTimeMillis;
+        private final int pushRetries;
+        private final long leaseWaitMillis;
+
+        /**
+         * Constructor for Record
+         * @param completed When the build completed, in milliseconds since the epoch
+         * @param job The full name of the job
+         * @param result The result of the build
+         * @param failureCause The simple class name of the exception that stopped the integration, or null
+         * @param leadTimeMillis The time from when the changes were made until the build completed, or -1 if unknown
+         * @param pushRetries The number of retried pushes
+         * @param leaseWaitMillis The time spent waiting for the lease on the integration branch
+         */
+        public Record(long completed, String job, String result, String failureCause, long leadTimeMillis, int pushRetries, long leaseWaitMillis) {
+            this.completed = completed;
+            this.job = job;
+            this.result = result;
+            this.failureCause = failureCause;
+            this.leadTimeMillis = leadTimeMillis;
+            this.pushRetries = pushRetries;
+            this.leaseWaitMillis = leaseWaitMillis;
+        }
+
+        /**
+         * Builds the record of a completed build from its actions.
+         * @param build The Build
+         * @param completed When the build completed, in milliseconds since the epoch
+         * @return the record
+         */
+        static Record of(AbstractBuild<?, ?> build, long completed) {
+            Result result = build.getResult();
+            IntegrationFailureAction failure = build.getAction(IntegrationFailureAction.class);
+            IntegrationTimingAction timing = build.getAction(IntegrationTimingAction.class);
+            PushRetryAction retry = build.getAction(PushRetryAction.class);
+            IntegrationLeaseAction lease = build.getAction(IntegrationLeaseAction.class);
+            long readySince = timing == null ? 0 : timing.getReadySince();
+            return new Record(completed,
+                    build.getProject().getFullName(),
+                    result == null ? Result.NOT_BUILT.toString() : result.toString(),
+                    failure == null ? null : failure.getCause(),
+                    readySince > 0 ? completed - readySince : -1,
+                    retry == null ? 0 : retry.getRetries(),
+                    lease == null ? 0 : lease.getWaitMillis());
+        }
+
+        /**
+         * @return when the build completed, in milliseconds since the epoch
+         */
+        public long getCompleted() {
+            return completed;
+        }
+
+        /**
+         * @return the full name of the job
+         */
+        public String getJob() {
+            return job;
+        }
+
+        /**
+         * @return the result of the build
+         */
+        public String getResult() {
+            return result;
+        }
+
+        /**
+         * @return the simple class name of the exception that stopped the integration, or null
+         */
+        public String getFailureCause() {
+            return failureCause;
+        }
+
+        /**
+         * @return the time from when the changes were made until the build completed, or -1 if unknown
+         */
+        public long getLeadTimeMillis() {
+            return leadTimeMillis;
+        }
+
+        /**
+         * @return the number of retried pushes
+         */
+        public int getPushRetries() {
+            return pushRetries;
+        }
+
+        /**
+         * @return the time spent waiting for the lease on the integration branch
+         */
+        public long getLeaseWaitMillis() {
+            return leaseWaitMillis;
+        }
+    }
+
+    /**
+     * The summary of the integrations in a time window.
+     */
+    public static final class Summary {
+
+        private final long windowMillis;
+        private final long end;
+        private final int integrations;
+        private final int succeeded;
+        private final Map<String, Integer> failuresByCause = new TreeMap<>();
+        private final long medianLeadTimeMillis;
+        private final long p95LeadTimeMillis;
+        private final int pushRetries;
+        private final long leaseWaitMillis;
+
+        /**
+         * Constructor for Summary
+         * @param windowMillis The length of the window, in milliseconds
+         * @param end The end of the window, in milliseconds since the epoch
+         * @param records The records in the window
+         */
+        Summary(long windowMillis, long end, List<Record> records) {
+            this.windowMillis = windowMillis;
+            this.end = end;
+            this.integrations = records.size();
+            int successes = 0;
+            int retries = 0;
+            long leaseWait = 0;
+            List<Long> leadTimes = new ArrayList<>();
+            for (Record record : records) {
+                if (Result.SUCCESS.toString().equals(record.getResult()) && record.getFailureCause() == null) {
+                    successes++;
+                }
+                if (record.getFailureCause() != null) {
+                    Integer count = failuresByCause.get(record.getFailureCause());
+                    failuresByCause.put(record.getFailureCause(), count == null ? 1 : count + 1);
+                }
+                if (record.getLeadTimeMillis() >= 0) {
+                    leadTimes.add(record.getLeadTimeMillis());
+                }
+                retries += record.getPushRetries();
+                leaseWait += record.getLeaseWaitMillis();
+            }
+            Collections.sort(leadTimes);
+            this.succeeded = successes;
+            this.medianLeadTimeMillis = percentile(leadTimes, 50);
+            this.p95LeadTimeMillis = percentile(leadTimes, 95);
+            this.pushRetries = retries;
+            this.leaseWaitMillis = leaseWait;
+        }
+
+        private static long percentile(List<Long> sorted, int percentile) {
+            if (sorted.isEmpty()) {
+                return -1;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+            return sorted.get(Math.max(index, 0));
+        }
+
+        /**
+         * @return the length of the window, in milliseconds
+         */
+        public long getWindowMillis() {
+            return windowMillis;
+        }
+
+        /**
+         * @return the length of the window, in hours
+         */
+        public long getWindowHours() {
+            return TimeUnit.MILLISECONDS.toHours(windowMillis);
+        }
+
+        /**
+         * @return the start of the window
+         */
+        public Date getStart() {
+            return new Date(end - windowMillis);
+        }
+
+        /**
+         * @return the number of integrations in the window
+         */
+        public int getIntegrations() {
+            return integrations;
+        }
+
+        /**
+         * @return the average number of integrations per hour in the window
+         */
+        public double getIntegrationsPerHour() {
+            return integrations / (double) Math.max(getWindowHours(), 1);
+        }
+
+        /**
+         * @return the number of successful integrations in the window
+         */
+        public int getSucceeded() {
+            return succeeded;
+        }
+
+        /**
+         * @return the number of failed integrations in the window, by the exception that stopped them
+         */
+        public Map<String, Integer> getFailuresByCause() {
+            return Collections.unmodifiableMap(failuresByCause);
+        }
+
+        /**
+         * @return the median time from when the changes were made until they were integrated, or -1 if unknown
+         */
+        public long getMedianLeadTimeMillis() {
+            return medianLeadTimeMillis;
+        }
+
+        /**
+         * @return the 95th percentile of the time from when the changes were made until they were integrated, or -1 if unknown
+         */
+        public long getP95LeadTimeMillis() {
+            return p95LeadTimeMillis;
+        }
+
+        /**
+         * @return the number of pushes retried because the integration branch had moved
+         */
+        public int getPushRetries() {
+            return pushRetries;
+        }
+
+        /**
+         * @return the total time spent waiting for integration branch leases, in milliseconds
+         */
+        public long getLeaseWaitMillis() {
+            return leaseWaitMillis;
+        }
+    }
+}
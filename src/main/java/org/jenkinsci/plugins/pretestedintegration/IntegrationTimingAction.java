@@ -0,0 +1,104 @@
+package org.jenkinsci.plugins.pretestedintegration;
+
+import hudson.model.AbstractBuild;
+import hudson.model.InvisibleAction;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records how long each phase of the integration took, shown on the build page.
+ * Phases are measured with System.nanoTime, in the order they first ran.
+ * A phase that runs more than once, e.g. the push when it is retried, adds up.
+ * Phases can contain each other: the merge includes counting the commits and the fast-forward and rebase attempts.
+ * The commit covers merging and committing, whether done in memory or in the workspace.
+ * The push covers the atomic push attempt and each push of the integration branch.
+ */
+public class IntegrationTimingAction extends InvisibleAction {
+
+    public static final String VALIDATE_CONFIGURATION = "validateConfiguration";
+    public static final String IS_APPLICABLE = "isApplicable";
+    public static final String CHECK_FOR_CONFLICTS = "checkForConflicts";
+    public static final String ENSURE_BRANCH = "ensureBranch";
+    public static final String FETCH = "fetch";
+    public static final String MERGE = "merge";
+    public static final String COUNT = "count";
+    public static final String FAST_FORWARD = "fastForward";
+    public static final String REBASE = "rebase";
+    public static final String COMMIT = "commit";
+    public static final String LEASE_WAIT = "leaseWait";
+    public static final String PUSH = "push";
+    public static final String DELETE_BRANCH = "deleteBranch";
+
+    private final LinkedHashMap<String, Long> phases = new LinkedHashMap<>();
+
+    /**
+     * When the integrated changes were made, in milliseconds since the epoch. 0 if unknown.
+     */
+    private long readySince;
+
+    /**
+     * Returns the timing action of the build, adding it if the build doesn't have one yet.
+     * @param build The Build
+     * @return the timing action of the build
+     */
+    public static IntegrationTimingAction of(AbstractBuild<?, ?> build) {
+        synchronized (build) {
+            IntegrationTimingAction action = build.getAction(IntegrationTimingAction.class);
+            if (action == null) {
+                action = new IntegrationTimingAction();
+                build.addAction(action);
+            }
+            return action;
+        }
+    }
+
+    /**
+     * Records a phase that started at the given time and ends now.
+     * @param build The Build
+     * @param phase The name of the phase
+     * @param startNanos The start of the phase, as returned by System.nanoTime
+     */
+    public static void record(AbstractBuild<?, ?> build, String phase, long startNanos) {
+        of(build).add(phase, (System.nanoTime() - startNanos) / 1000000);
+    }
+
+    /**
+     * Adds time to a phase.
+     * @param phase The name of the phase
+     * @param millis The time spent, in milliseconds
+     */
+    public synchronized void add(String phase, long millis) {
+        Long previous = phases.get(phase);
+        phases.put(phase, previous == null ? millis : previous + millis);
+    }
+
+    /**
+     * @param phase The name of the phase
+     * @return the time spent in the phase in milliseconds, or -1 if it didn't run
+     */
+    public synchronized long getMillis(String phase) {
+        Long millis = phases.get(phase);
+        return millis == null ? -1 : millis;
+    }
+
+    /**
+     * @return the time spent in each phase in milliseconds, in the order the phases first ran
+     */
+    public synchronized Map<String, Long> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    /**
+     * @return when the integrated changes were made, in milliseconds since the epoch, or 0 if unknown
+     */
+    public synchronized long getReadySince() {
+        return readySince;
+    }
+
+    /**
+     * @param readySince When the integrated changes were made, in milliseconds since the epoch
+     */
+    public synchronized void setReadySince(long readySince) {
+        this.readySince = readySince;
+    }
+}
@@ -0,0 +1,10 @@
+package org.jenkinsci.plugins.pretestedintegration;
+
+import hudson.model.InvisibleAction;
+
+/**
+ * Marks a matrix build that has integrated the changes once for all of its configurations.
+ * Configurations of a marked build reuse its integration, see {@link AbstractSCMBridge#reuseIntegration}.
+ */
+public class MatrixIntegrationAction extends InvisibleAction {
+}
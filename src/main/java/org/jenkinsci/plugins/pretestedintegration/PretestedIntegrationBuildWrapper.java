@@ -3,6 +3,11 @@ package org.jenkinsci.plugins.pretestedintegration;
 import hudson.Extension;
 import hudson.Launcher;
 import hudson.Plugin;
+import hudson.matrix.MatrixAggregatable;
+import hudson.matrix.MatrixAggregator;
+import hudson.matrix.MatrixBuild;
+import hudson.matrix.MatrixProject;
+import hudson.matrix.MatrixRun;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
@@ -25,7 +30,7 @@ import org.kohsuke.stapler.DataBoundConstructor;
  * The build wrapper determines what will happen before the build will run.
  * Depending on the chosen SCM, a more specific function will be called.
  */
-public class PretestedIntegrationBuildWrapper extends BuildWrapper {
+public class PretestedIntegrationBuildWrapper extends BuildWrapper implements MatrixAggregatable {
 
     private static final Logger LOGGER = Logger.getLogger(PretestedIntegrationBuildWrapper.class.getName());
 
@@ -61,35 +66,138 @@ public class PretestedIntegrationBuildWrapper extends BuildWrapper {
     @Override
     public BuildWrapper.Environment setUp(AbstractBuild build, Launcher launcher, BuildListener listener) {
         listener.getLogger().println(String.format("%s Pretested Integration Plugin v%s", LOG_PREFIX, getVersion()));
+        boolean proceedToBuildStep;
+        MatrixBuild matrixBuild = build instanceof MatrixRun ? ((MatrixRun) build).getParentBuild() : null;
+        if (matrixBuild != null && matrixBuild.getAction(MatrixIntegrationAction.class) != null) {
+            proceedToBuildStep = reuseIntegration(build, launcher, listener, matrixBuild);
+        } else {
+            proceedToBuildStep = integrate(build, launcher, listener);
+        }
+
+        BuildWrapper.Environment environment = new PretestEnvironment();
+        return proceedToBuildStep ? environment : null;
+    }
+
+    /**
+     * Integrates the changes into the workspace of the build.
+     *
+     * @param build The Build
+     * @param launcher The Launcher
+     * @param listener The BuildListener
+     * @return true if the build can continue, false if the integration failed or there was nothing to do.
+     * The result of the build is set accordingly.
+     */
+    private boolean integrate(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) {
         boolean proceedToBuildStep = true;
         try {
+            long start = System.nanoTime();
             scmBridge.validateConfiguration(build.getProject());
+            IntegrationTimingAction.record(build, IntegrationTimingAction.VALIDATE_CONFIGURATION, start);
+            start = System.nanoTime();
             scmBridge.isApplicable(build, listener);
-            scmBridge.ensureBranch(build, launcher, listener, scmBridge.getExpandedBranch(build.getEnvironment(listener)));
+            IntegrationTimingAction.record(build, IntegrationTimingAction.IS_APPLICABLE, start);
+            start = System.nanoTime();
+            scmBridge.checkForConflicts(build, launcher, listener);
+            IntegrationTimingAction.record(build, IntegrationTimingAction.CHECK_FOR_CONFLICTS, start);
+            start = System.nanoTime();
+            scmBridge.ensureBranch(build, launcher, listener, scmBridge.getExpandedBranch(scmBridge.getEnvironment(build, listener)));
+            IntegrationTimingAction.record(build, IntegrationTimingAction.ENSURE_BRANCH, start);
+            start = System.nanoTime();
             scmBridge.prepareWorkspace(build, launcher, listener);
+            IntegrationTimingAction.record(build, IntegrationTimingAction.MERGE, start);
         } catch (NothingToDoException e) {
             build.setResult(Result.NOT_BUILT);
+            IntegrationFailureAction.record(build, e);
             String logMessage = LOG_PREFIX + String.format("%s - setUp() - NothingToDoException - %s", LOG_PREFIX, e.getMessage());
             listener.getLogger().println(logMessage);
             LOGGER.log(Level.SEVERE, logMessage, e);
             proceedToBuildStep = false;
         } catch (IntegrationFailedException | EstablishingWorkspaceFailedException | UnsupportedConfigurationException e) {
             build.setResult(Result.FAILURE);
+            IntegrationFailureAction.record(build, e);
             String logMessage = String.format("%s - setUp() - %s - %s", LOG_PREFIX, e.getClass().getSimpleName(), e.getMessage());
             listener.getLogger().println(logMessage);
             LOGGER.log(Level.SEVERE, logMessage, e);
             proceedToBuildStep = false;
         } catch (IOException | InterruptedException e) {
             build.setResult(Result.FAILURE);
+            IntegrationFailureAction.record(build, e);
             String logMessage = String.format("%s - Unexpected error. %n%s", LOG_PREFIX, e.getMessage());
             LOGGER.log(Level.SEVERE, logMessage, e);
             listener.getLogger().println(logMessage);
             e.printStackTrace(listener.getLogger());
             proceedToBuildStep = false;
         }
+        return proceedToBuildStep;
+    }
 
-        BuildWrapper.Environment environment = new PretestEnvironment();
-        return proceedToBuildStep ? environment : null;
+    /**
+     * Prepares the workspace of a matrix configuration with the integration of its matrix build.
+     * The configuration fails if the integration can't be reused, as the matrix build publishes its own integration,
+     * so building any other would test something that isn't published.
+     *
+     * @param build The Build of the configuration
+     * @param launcher The Launcher
+     * @param listener The BuildListener
+     * @param matrixBuild The matrix build that made the integration
+     * @return true if the build can continue, false if the integration couldn't be reused. The result of the build is set accordingly.
+     */
+    private boolean reuseIntegration(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener, MatrixBuild matrixBuild) {
+        try {
+            if (scmBridge.reuseIntegration(build, launcher, listener, matrixBuild)) {
+                return true;
+            }
+            throw new IntegrationFailedException(String.format("Failed to reuse the integration of %s", matrixBuild.getFullDisplayName()));
+        } catch (IOException | InterruptedException e) {
+            build.setResult(Result.FAILURE);
+            IntegrationFailureAction.record(build, e);
+            String logMessage = String.format("%s - Failed to reuse the integration of %s. %n%s", LOG_PREFIX, matrixBuild.getFullDisplayName(), e.getMessage());
+            LOGGER.log(Level.SEVERE, logMessage, e);
+            listener.getLogger().println(logMessage);
+            return false;
+        }
+    }
+
+    /**
+     * Integrates once in the matrix build, before any configuration is built, and shares the integration with them.
+     * The configurations then reuse the integration, and a merge conflict fails the build before any configuration starts.
+     * An integration that can't be shared fails the build as well, as it would be published without being built.
+     *
+     * @param build The matrix build
+     * @param launcher The Launcher
+     * @param listener The BuildListener
+     * @return the aggregator
+     */
+    @Override
+    public MatrixAggregator createAggregator(MatrixBuild build, Launcher launcher, BuildListener listener) {
+        return new MatrixAggregator(build, launcher, listener) {
+            @Override
+            public boolean startBuild() throws InterruptedException, IOException {
+                listener.getLogger().println(String.format("%s Pretested Integration Plugin v%s", LOG_PREFIX, getVersion()));
+                listener.getLogger().println(LOG_PREFIX + "Integrating once for all configurations");
+                if (integrate(build, launcher, listener)) {
+                    if (!scmBridge.shareIntegration(build, launcher, listener)) {
+                        String logMessage = LOG_PREFIX + "The integration can't be shared with the configurations, failing the build";
+                        LOGGER.log(Level.SEVERE, logMessage);
+                        listener.getLogger().println(logMessage);
+                        build.setResult(Result.FAILURE);
+                        return false;
+                    }
+                    build.addAction(new MatrixIntegrationAction());
+                    return true;
+                }
+                // With nothing to do, let the configurations end as not built as well
+                return build.getResult() == Result.NOT_BUILT;
+            }
+
+            @Override
+            public boolean endBuild() throws InterruptedException, IOException {
+                if (build.getAction(MatrixIntegrationAction.class) != null) {
+                    scmBridge.unshareIntegration(build, launcher, listener);
+                }
+                return true;
+            }
+        };
     }
 
     /**
@@ -142,7 +250,7 @@ public class PretestedIntegrationBuildWrapper extends BuildWrapper {
          */
         @Override
         public boolean isApplicable(AbstractProject<?, ?> arg0) {
-            return arg0 instanceof FreeStyleProject;
+            return arg0 instanceof FreeStyleProject || arg0 instanceof MatrixProject;
         }
     }
 
@@ -3,8 +3,12 @@ package org.jenkinsci.plugins.pretestedintegration;
 import hudson.AbortException;
 import hudson.Extension;
 import hudson.Launcher;
+import hudson.matrix.MatrixAggregatable;
+import hudson.matrix.MatrixAggregator;
+import hudson.matrix.MatrixBuild;
 import hudson.matrix.MatrixConfiguration;
 import hudson.matrix.MatrixProject;
+import hudson.matrix.MatrixRun;
 import hudson.model.*;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
@@ -19,7 +23,7 @@ import org.kohsuke.stapler.DataBoundConstructor;
  * The publisher determines what will happen when the build has been run.
  * Depending on the chosen SCM, a more specific function will be called.
  */
-public class PretestedIntegrationPostCheckout extends Recorder {
+public class PretestedIntegrationPostCheckout extends Recorder implements MatrixAggregatable {
 
     private static final Logger LOGGER = Logger.getLogger(PretestedIntegrationPostCheckout.class.getName());
 
@@ -35,7 +39,7 @@ public class PretestedIntegrationPostCheckout extends Recorder {
      *
      * @param build the Build whose project to get the SCM Bridge of.
      * @return the SCM Bridge of the BuildWrapper of this project.
-     * @throws AbortException When used outside of FreeStyle projects.
+     * @throws AbortException When used outside of FreeStyle and Matrix projects.
      */
     private AbstractSCMBridge getScmBridge(AbstractBuild<?, ?> build) throws AbortException {
         AbstractProject<?, ?> proj = build.getProject();
@@ -43,6 +47,9 @@ public class PretestedIntegrationPostCheckout extends Recorder {
             FreeStyleProject p = (FreeStyleProject) build.getProject();
             PretestedIntegrationBuildWrapper wrapper = p.getBuildWrappersList().get(PretestedIntegrationBuildWrapper.class);
             return wrapper.scmBridge;
+        } else if (proj instanceof MatrixProject) {
+            PretestedIntegrationBuildWrapper wrapper = ((MatrixProject) proj).getBuildWrappersList().get(PretestedIntegrationBuildWrapper.class);
+            return wrapper.scmBridge;
         } else if (proj instanceof MatrixConfiguration) {
             MatrixProject p = ((MatrixConfiguration) proj).getParent();
             PretestedIntegrationBuildWrapper wrapper = p.getBuildWrappersList().get(PretestedIntegrationBuildWrapper.class);
@@ -64,6 +71,10 @@ public class PretestedIntegrationPostCheckout extends Recorder {
      */
     @Override
     public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+        if (build instanceof MatrixRun) {
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + "The integration is published by the matrix build, when all configurations are done");
+            return true;
+        }
         listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Performing pre-verified post build steps");
         try {
             getScmBridge(build).handlePostBuild(build, launcher, listener);
@@ -73,6 +84,7 @@ public class PretestedIntegrationPostCheckout extends Recorder {
             throw new AbortException("Unexpected error. Trace written to log.");
         } catch (IOException e) {
             //All our known errors are IOExceptions. Just print the message, log the error.
+            IntegrationFailureAction.record(build, e);
             listener.getLogger().println(e.getMessage());
             LOGGER.log(Level.SEVERE, "IOException in post checkout", e);
             throw new AbortException(e.getMessage());
@@ -81,6 +93,30 @@ public class PretestedIntegrationPostCheckout extends Recorder {
         return true;
     }
 
+    /**
+     * Publishes once in the matrix build, after all configurations are done,
+     * with the combined result of the configurations.
+     *
+     * @param build The matrix build
+     * @param launcher The Launcher
+     * @param listener The BuildListener
+     * @return the aggregator
+     */
+    @Override
+    public MatrixAggregator createAggregator(MatrixBuild build, Launcher launcher, BuildListener listener) {
+        return new MatrixAggregator(build, launcher, listener) {
+            @Override
+            public boolean endBuild() throws InterruptedException, IOException {
+                try {
+                    return perform(build, launcher, listener);
+                } catch (AbortException e) {
+                    build.setResult(Result.FAILURE);
+                    return false;
+                }
+            }
+        };
+    }
+
     /**
      * {@inheritDoc}
      */
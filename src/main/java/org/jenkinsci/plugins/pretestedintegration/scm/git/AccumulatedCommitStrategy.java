@@ -1,6 +1,7 @@
 package org.jenkinsci.plugins.pretestedintegration.scm.git;
 
 import hudson.Extension;
+import hudson.FilePath;
 import hudson.Launcher;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
@@ -9,8 +10,10 @@ import hudson.plugins.git.GitException;
 import hudson.plugins.git.util.BuildData;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.apache.commons.io.IOUtils;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.jenkinsci.plugins.gitclient.GitClient;
 import org.jenkinsci.plugins.gitclient.MergeCommand;
@@ -19,6 +22,7 @@ import org.jenkinsci.plugins.pretestedintegration.exceptions.IntegrationFailedEx
 import org.jenkinsci.plugins.pretestedintegration.exceptions.NothingToDoException;
 import org.jenkinsci.plugins.pretestedintegration.exceptions.UnsupportedConfigurationException;
 import org.jenkinsci.plugins.pretestedintegration.IntegrationStrategyDescriptor;
+import org.jenkinsci.plugins.pretestedintegration.IntegrationTimingAction;
 import org.jenkinsci.plugins.pretestedintegration.PretestedIntegrationBuildWrapper;
 import org.kohsuke.stapler.DataBoundConstructor;
 
@@ -64,14 +68,14 @@ public class AccumulatedCommitStrategy extends GitIntegrationStrategy {
         String builtSha = buildData.lastBuild.revision.getSha1String();
         String expandedIntegrationBranch;
         try {
-            expandedIntegrationBranch = gitbridge.getExpandedBranch(build.getEnvironment(listener));
+            expandedIntegrationBranch = gitbridge.getExpandedBranch(gitbridge.getEnvironment(build, listener));
         } catch (IOException | InterruptedException ex) {
             expandedIntegrationBranch = gitbridge.getBranch();
         }
 
         GitClient client;
         try {
-            client = gitbridge.findScm(build, listener).createClient(listener, build.getEnvironment(listener), build, build.getWorkspace());
+            client = gitbridge.findGitClient(build, listener);
         } catch (InterruptedException | IOException ex) {
             LOGGER.log(Level.SEVERE, "Failed to initialize GitClient", ex);
             throw new IntegrationFailedException(ex);
@@ -80,7 +84,7 @@ public class AccumulatedCommitStrategy extends GitIntegrationStrategy {
         String logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Preparing to merge changes in commit %s on development branch %s to integration branch %s", builtSha, builtBranch.getName(), expandedIntegrationBranch);
         LOGGER.log(Level.INFO, logMessage);
         listener.getLogger().println(logMessage);
-        if (!containsRemoteBranch(client, builtBranch)) {
+        if (!containsRemoteBranch(build, gitbridge, builtBranch, listener)) {
             LOGGER.fine("Found no remote branches.");
             try {
                 LOGGER.fine("Setting build description 'Nothing to do':");
@@ -94,6 +98,8 @@ public class AccumulatedCommitStrategy extends GitIntegrationStrategy {
         }
 
         String commitAuthor; //leaving un-assigned, want to fail later if not assigned
+        String headerLine;
+        String commitLogFile;
         try {
             // FIXME I don't like this call back design.
             // We build the commit message based on a series of commits which aren't guaranteed to match we end up merging.
@@ -104,28 +110,47 @@ public class AccumulatedCommitStrategy extends GitIntegrationStrategy {
             LOGGER.log(Level.INFO, logMessage);
             listener.getLogger().println(logMessage);
 
-            String headerLine = String.format("Accumulated commit of the following from branch '%s':%n", builtBranch.getName());
-            // Collect commits
-            String commits = client.withRepository(new GetAllCommitsFromBranchCallback(listener, builtBranch.getSHA1(), expandedIntegrationBranch));
-            logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Done collecting commit messages");
+            headerLine = String.format("Accumulated commit of the following from branch '%s':%n", builtBranch.getName()).replace('"', '\'');
+            // Collect commits, written to a file next to the workspace repository
+            BranchAnalysis analysis = gitbridge.analyzeBranch(build, listener, needsCommitLog(), SINGLE_COMMIT_LIMIT);
+            commitLogFile = analysis.getCommitLogFile();
+            if (analysis.getCommitLogOmitted() > 0) {
+                logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Commit message size cap reached, %s commit(s) summarized", analysis.getCommitLogOmitted());
+            } else {
+                logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Done collecting commit messages");
+            }
             LOGGER.log(Level.INFO, logMessage);
             listener.getLogger().println(logMessage);
             LOGGER.log(Level.INFO, String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Collecting author of last commit on development branch"));
 
             // Collect author
             listener.getLogger().println(String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Collecting author of last commit on development branch"));
-            commitAuthor = client.withRepository(new FindCommitAuthorCallback(listener, builtBranch.getSHA1()));
+            commitAuthor = gitbridge.analyzeBranch(build, listener, needsCommitLog(), SINGLE_COMMIT_LIMIT).getTipAuthor();
             logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Done colecting last commit author: %s", commitAuthor);
             LOGGER.log(Level.INFO, logMessage);
             listener.getLogger().println(logMessage);
+        } catch (IOException | InterruptedException | GitException ex) {
+            logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Exception while merging. Logging exception msg: %s", ex.getMessage());
+            LOGGER.log(Level.SEVERE, logMessage, ex);
+            listener.getLogger().println(logMessage);
+            throw new IntegrationFailedException(ex);
+        }
+
+        if (tryInMemoryMerge(build, listener, gitbridge, buildData.lastBuild.revision.getSha1(), false, String.format("%s%n", headerLine), commitLogFile, getPersonIdent(commitAuthor))) {
+            logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Commit was successful");
+            LOGGER.log(Level.INFO, logMessage);
+            listener.getLogger().println(logMessage);
+            return;
+        }
 
+        // Timed as the in-memory merge is, merge and commit together
+        long start = System.nanoTime();
+        try {
             logMessage = PretestedIntegrationBuildWrapper.LOG_PREFIX + "Starting accumulated merge (no-ff) - without commit:";
             LOGGER.info(logMessage);
             listener.getLogger().println(logMessage);
-            String commitMsg = String.format("%s%n%s", headerLine, commits);
-            String modifiedCommitMsg = commitMsg.replaceAll("\"", "'");
             client.merge()
-                    .setMessage(modifiedCommitMsg)
+                    .setMessage(headerLine)
                     .setCommit(false)
                     .setGitPluginFastForwardMode(MergeCommand.GitPluginFastForwardMode.NO_FF)
                     .setRevisionToMerge(buildData.lastBuild.revision.getSha1())
@@ -133,7 +158,10 @@ public class AccumulatedCommitStrategy extends GitIntegrationStrategy {
             logMessage = PretestedIntegrationBuildWrapper.LOG_PREFIX + "Accumulated merge done";
             LOGGER.info(logMessage);
             listener.getLogger().println(logMessage);
-        } catch (IOException | InterruptedException | GitException ex) {
+        } catch (InterruptedException | GitException ex) {
+            if (ex instanceof GitException) {
+                gitbridge.recordMergeFailure(build, listener, (GitException) ex);
+            }
             logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Exception while merging. Logging exception msg: %s", ex.getMessage());
             LOGGER.log(Level.SEVERE, logMessage, ex);
             listener.getLogger().println(logMessage);
@@ -146,10 +174,20 @@ public class AccumulatedCommitStrategy extends GitIntegrationStrategy {
             logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Starting to commit accumulated merge changes:");
             LOGGER.info(logMessage);
             listener.getLogger().println(logMessage);
-            String message = client.getWorkTree().child(".git/MERGE_MSG").readToString();
+            // The merge message only holds the header, the capped commit log is read back from the workspace
+            FilePath mergeMessage = client.getWorkTree().child(".git/MERGE_MSG");
+            if (!mergeMessage.exists()) {
+                throw new FileNotFoundException(mergeMessage.getRemote() + " (No such file or directory)");
+            }
+            String commits;
+            try (InputStream in = client.getWorkTree().child(".git/" + commitLogFile).read()) {
+                commits = IOUtils.toString(in, "UTF-8");
+            }
+            String message = String.format("%s%n%s", headerLine, commits);
             PersonIdent author = getPersonIdent(commitAuthor);
             client.setAuthor(author);
             client.commit(message);
+            IntegrationTimingAction.record(build, IntegrationTimingAction.COMMIT, start);
             logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Commit of accumulated merge done");
             LOGGER.info(logMessage);
             listener.getLogger().println(logMessage);
@@ -172,6 +210,14 @@ public class AccumulatedCommitStrategy extends GitIntegrationStrategy {
         listener.getLogger().println(logMessage);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean needsCommitLog() {
+        return true;
+    }
+
     /**
      * Descriptor implementation for AccumulatedCommitStrategy
      */
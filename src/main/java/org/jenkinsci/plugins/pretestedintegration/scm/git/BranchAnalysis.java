@@ -0,0 +1,113 @@
+package org.jenkinsci.plugins.pretestedintegration.scm.git;
+
+import java.io.Serializable;
+
+/**
+ * Immutable summary of the commits on a ready branch that aren't on the integration branch.
+ * Produced in a single pass by the BranchAnalysisCallback.
+ */
+public final class BranchAnalysis implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int commitCount;
+    private final boolean commitCountComplete;
+    private final String tipAuthor;
+    private final String commitLogFile;
+    private final int commitLogOmitted;
+    private final String readyBranch;
+    private final boolean readyBranchFound;
+
+    /**
+     * Constructor for BranchAnalysis
+     * @param commitCount The number of commits on the branch not on the integration branch
+     * @param commitCountComplete Whether all commits were counted, or the count stopped at a limit
+     * @param tipAuthor The author of the branch tip, as a full Git identity string
+     * @param commitLogFile The name of the file in the Git directory holding the formatted log of the commits, or null if it wasn't collected
+     * @param commitLogOmitted The number of commits left out of the commit log because of its size cap
+     * @param readyBranch The remote branch name of the ready branch that was looked up, or null if none was
+     * @param readyBranchFound Whether the ready branch was found among the remote branches
+     */
+    public BranchAnalysis(int commitCount, boolean commitCountComplete, String tipAuthor, String commitLogFile, int commitLogOmitted, String readyBranch, boolean readyBranchFound) {
+        this.commitCount = commitCount;
+        this.commitCountComplete = commitCountComplete;
+        this.tipAuthor = tipAuthor;
+        this.commitLogFile = commitLogFile;
+        this.commitLogOmitted = commitLogOmitted;
+        this.readyBranch = readyBranch;
+        this.readyBranchFound = readyBranchFound;
+    }
+
+    /**
+     * @return the number of commits on the branch not on the integration branch.
+     * When the count isn't complete, the branch has at least this many.
+     */
+    public int getCommitCount() {
+        return commitCount;
+    }
+
+    /**
+     * @return whether all commits were counted, or the count stopped at a limit
+     */
+    public boolean isCommitCountComplete() {
+        return commitCountComplete;
+    }
+
+    /**
+     * Checks whether this analysis answers a request with the given requirements.
+     * @param withCommitLog Whether the commit log is needed
+     * @param commitLimit The count needed. 0 means the exact count.
+     * @return true if this analysis can be used instead of analysing again
+     */
+    public boolean satisfies(boolean withCommitLog, int commitLimit) {
+        if (withCommitLog && !hasCommitLog()) {
+            return false;
+        }
+        return commitCountComplete || (commitLimit > 0 && commitCount >= commitLimit);
+    }
+
+    /**
+     * @return the author of the branch tip, as a full Git identity string.
+     * ex.: john Doe &lt;Joh@praqma.net&gt; 1442321765 +0200
+     */
+    public String getTipAuthor() {
+        return tipAuthor;
+    }
+
+    /**
+     * The commit log is written on the node holding the workspace, and isn't sent over the channel.
+     * @return the name of the file in the Git directory holding the formatted log of the commits,
+     * or null if it wasn't collected
+     */
+    public String getCommitLogFile() {
+        return commitLogFile;
+    }
+
+    /**
+     * @return the number of commits left out of the commit log because of its size cap
+     */
+    public int getCommitLogOmitted() {
+        return commitLogOmitted;
+    }
+
+    /**
+     * @return whether the commit log was collected
+     */
+    public boolean hasCommitLog() {
+        return commitLogFile != null;
+    }
+
+    /**
+     * @return the remote branch name of the ready branch that was looked up, or null if none was
+     */
+    public String getReadyBranch() {
+        return readyBranch;
+    }
+
+    /**
+     * @return whether the ready branch was found among the remote branches
+     */
+    public boolean isReadyBranchFound() {
+        return readyBranchFound;
+    }
+}
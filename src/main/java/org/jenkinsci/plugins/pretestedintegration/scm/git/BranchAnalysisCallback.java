@@ -0,0 +1,142 @@
+package org.jenkinsci.plugins.pretestedintegration.scm.git;
+
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Callback that analyses the commits between the integration branch and a ready branch in one round-trip.
+ * Replaces separate calls for counting the commits, finding the author and collecting the commit messages.
+ * The commit log is written to a file in the Git directory, so it never travels over the channel.
+ */
+public class BranchAnalysisCallback extends RepositoryListenerAwareCallback<BranchAnalysis> {
+
+    /**
+     * Name of the file in the Git directory the commit log is written to.
+     */
+    public static final String COMMIT_LOG_FILE = "PREINT_COMMIT_LOG";
+
+    /**
+     * Maximum number of characters in the commit log. Commits beyond it are summarized in a trailer.
+     * Read on the master, as the callback is constructed there.
+     */
+    static final long MAX_COMMIT_LOG_LENGTH = Long.getLong(BranchAnalysisCallback.class.getName() + ".maxCommitLogLength", 1024 * 1024);
+
+    /**
+     * The commit Id of the ready branch tip.
+     */
+    public final ObjectId id;
+
+    /**
+     * The name of the integration branch.
+     */
+    public final String branch;
+
+    /**
+     * Whether or not to collect the formatted commit log.
+     */
+    public final boolean collectCommitLog;
+
+    /**
+     * The commit count at which to stop walking. 0 means no limit.
+     * Ignored when collecting the commit log, as that needs every commit.
+     */
+    public final int commitLimit;
+
+    /**
+     * The maximum number of characters in the commit log.
+     */
+    public final long maxCommitLogLength;
+
+    /**
+     * The remote branch name of the ready branch to look up, including the remote name, or null.
+     * Looked up in the same round-trip, as the strategies check it right after analysing the branch.
+     */
+    public final String readyBranch;
+
+    /**
+     * Constructor for BranchAnalysisCallback
+     * @param listener The TaskListener
+     * @param id The commit Id of the ready branch tip
+     * @param branch The name of the integration branch
+     * @param collectCommitLog Whether or not to collect the formatted commit log
+     * @param commitLimit The commit count at which to stop walking. 0 means no limit.
+     * @param readyBranch The remote branch name of the ready branch to look up, or null
+     */
+    public BranchAnalysisCallback(TaskListener listener, final ObjectId id, final String branch, boolean collectCommitLog, int commitLimit, final String readyBranch) {
+        super(listener);
+        this.id = id;
+        this.branch = branch;
+        this.collectCommitLog = collectCommitLog;
+        this.commitLimit = collectCommitLog ? 0 : commitLimit;
+        this.maxCommitLogLength = MAX_COMMIT_LOG_LENGTH;
+        this.readyBranch = readyBranch;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BranchAnalysis invoke(Repository repo, VirtualChannel channel) throws IOException, InterruptedException {
+        RevWalk walk = new RevWalk(repo);
+        try {
+            RevCommit tip = walk.parseCommit(id);
+            String tipAuthor = tip.getAuthorIdent().toExternalString();
+            // Without the commit log only the commit graph is needed, so don't keep the message buffers
+            walk.setRetainBody(collectCommitLog);
+            RevCommit target = walk.parseCommit(repo.resolve(branch));
+
+            walk.markStart(tip);
+            walk.markUninteresting(target);
+            int commitCount = 0;
+            boolean complete = true;
+            Writer commitLog = null;
+            CommitLogWriter commitLogWriter = null;
+            if (collectCommitLog) {
+                // The accumulated commit message can't contain double quotes, so replace them while writing
+                commitLog = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(repo.getDirectory(), COMMIT_LOG_FILE)), "UTF-8"));
+                commitLogWriter = new CommitLogWriter(commitLog, maxCommitLogLength, true);
+            }
+            try {
+                for (RevCommit rev : walk) {
+                    if (commitLimit > 0 && commitCount >= commitLimit) {
+                        complete = false;
+                        break;
+                    }
+                    commitCount++;
+                    if (collectCommitLog) {
+                        commitLogWriter.write(rev);
+                        // The message is written, so release its buffer
+                        rev.disposeBody();
+                    }
+                }
+                if (collectCommitLog) {
+                    commitLogWriter.finish();
+                }
+            } finally {
+                if (commitLog != null) {
+                    commitLog.close();
+                }
+            }
+
+            return new BranchAnalysis(commitCount,
+                    complete,
+                    tipAuthor,
+                    collectCommitLog ? COMMIT_LOG_FILE : null,
+                    collectCommitLog ? commitLogWriter.getOmitted() : 0,
+                    readyBranch,
+                    readyBranch != null && new FindRemoteBranchCallback(listener, readyBranch).invoke(repo, channel));
+        } finally {
+            walk.dispose();
+        }
+    }
+}
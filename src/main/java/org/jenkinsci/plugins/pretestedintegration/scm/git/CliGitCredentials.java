@@ -0,0 +1,112 @@
+package org.jenkinsci.plugins.pretestedintegration.scm.git;
+
+import com.cloudbees.jenkins.plugins.sshcredentials.SSHUserPrivateKey;
+import com.cloudbees.plugins.credentials.CredentialsMatchers;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.common.StandardUsernameCredentials;
+import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
+import com.cloudbees.plugins.credentials.domains.URIRequirementBuilder;
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.plugins.git.UserRemoteConfig;
+import hudson.security.ACL;
+import hudson.util.Secret;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Hands the credentials of a remote, as selected in the Git configuration of the job, to a command line Git.
+ * The GitClient does the same for the commands it runs itself, but offers no way to run others.
+ * Username and password are passed through GIT_ASKPASS, SSH keys through GIT_SSH.
+ * The secrets are put in the environment of the command, only the SSH key is written to a temporary file.
+ */
+final class CliGitCredentials {
+
+    private static final Logger LOGGER = Logger.getLogger(CliGitCredentials.class.getName());
+
+    private final FilePath[] files;
+
+    private CliGitCredentials(FilePath... files) {
+        this.files = files;
+    }
+
+    /**
+     * Sets up the credentials of a remote for a command line Git.
+     * @param build The Build
+     * @param remote The remote configuration, with the id of its credentials
+     * @param unix Whether the command runs on a Unix node
+     * @param tempDir The directory on the node for the temporary files
+     * @param environment The environment of the command, extended with the credentials
+     * @return the credentials, to be closed when the command is done.
+     * Null if the credentials can't be passed to a command line Git on this node.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    static CliGitCredentials setUp(AbstractBuild<?, ?> build, UserRemoteConfig remote, boolean unix, FilePath tempDir, EnvVars environment) throws IOException, InterruptedException {
+        if (remote == null || StringUtils.isBlank(remote.getCredentialsId())) {
+            // Whatever is available on the node, as for the GitClient
+            return new CliGitCredentials();
+        }
+        StandardUsernameCredentials credentials = CredentialsMatchers.firstOrNull(
+                CredentialsProvider.lookupCredentials(StandardUsernameCredentials.class, build.getProject(), ACL.SYSTEM, URIRequirementBuilder.fromUri(remote.getUrl()).build()),
+                CredentialsMatchers.withId(remote.getCredentialsId()));
+        if (credentials == null) {
+            LOGGER.log(Level.WARNING, "Credentials {0} not found", remote.getCredentialsId());
+            return null;
+        }
+        if (!unix) {
+            LOGGER.log(Level.FINE, "Credentials are only passed to command line Git on Unix nodes");
+            return null;
+        }
+        tempDir.mkdirs();
+        if (credentials instanceof StandardUsernamePasswordCredentials) {
+            StandardUsernamePasswordCredentials userPass = (StandardUsernamePasswordCredentials) credentials;
+            FilePath askPass = tempDir.createTextTempFile("preint-askpass", ".sh",
+                    "#!/bin/sh\n"
+                    + "case \"$1\" in\n"
+                    + "[Uu]sername*) echo \"$PREINT_GIT_USERNAME\" ;;\n"
+                    + "*) echo \"$PREINT_GIT_PASSWORD\" ;;\n"
+                    + "esac\n");
+            askPass.chmod(0700);
+            environment.put("GIT_ASKPASS", askPass.getRemote());
+            environment.put("PREINT_GIT_USERNAME", userPass.getUsername());
+            environment.put("PREINT_GIT_PASSWORD", Secret.toString(userPass.getPassword()));
+            return new CliGitCredentials(askPass);
+        }
+        if (credentials instanceof SSHUserPrivateKey) {
+            SSHUserPrivateKey sshKey = (SSHUserPrivateKey) credentials;
+            if (StringUtils.isNotEmpty(Secret.toString(sshKey.getPassphrase()))) {
+                LOGGER.log(Level.FINE, "SSH keys with a passphrase aren't passed to command line Git");
+                return null;
+            }
+            FilePath key = tempDir.createTextTempFile("preint-key", ".key", sshKey.getPrivateKey());
+            key.chmod(0400);
+            FilePath ssh = tempDir.createTextTempFile("preint-ssh", ".sh",
+                    "#!/bin/sh\n"
+                    + "exec ssh -i \"$PREINT_SSH_KEY\" -l \"$PREINT_SSH_USER\" -o StrictHostKeyChecking=no \"$@\"\n");
+            ssh.chmod(0700);
+            environment.put("GIT_SSH", ssh.getRemote());
+            environment.put("PREINT_SSH_KEY", key.getRemote());
+            environment.put("PREINT_SSH_USER", sshKey.getUsername());
+            return new CliGitCredentials(ssh, key);
+        }
+        LOGGER.log(Level.FINE, "Unsupported credentials type {0}", credentials.getClass().getName());
+        return null;
+    }
+
+    /**
+     * Deletes the temporary files.
+     */
+    void close() {
+        for (FilePath file : files) {
+            try {
+                file.delete();
+            } catch (IOException | InterruptedException ex) {
+                LOGGER.log(Level.WARNING, "Failed to delete " + file, ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package org.jenkinsci.plugins.pretestedintegration.scm.git;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * Writes the commit listing of a commit message, one commit at a time.
+ * The ACCUMULATED format is the one of the accumulated commit message,
+ * see 'The accumulated commit message' in the README for the reasoning behind it.
+ * The SQUASH format is the one Git writes to SQUASH_MSG for a squash merge.
+ *
+ * Formatting objects are reused between commits, and the output is capped at a maximum length.
+ * Commits that don't fit are counted and summarized in a trailer line when the writer is finished.
+ * Not thread safe.
+ */
+public class CommitLogWriter {
+
+    /**
+     * The formats of the commit listing.
+     */
+    public enum Format {
+        /**
+         * The format of the accumulated commit message: the commit time in the time zone of the node.
+         */
+        ACCUMULATED,
+        /**
+         * The format of 'git merge --squash': the author date in the time zone of the author,
+         * the parents of merge commits, and no trailing blank lines in the messages.
+         */
+        SQUASH
+    }
+
+    /**
+     * Use as maximum length to write every commit.
+     */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    /**
+     * The line separator used in the message. Same as '%n'.
+     */
+    private static final String NEWLINE = System.getProperty("line.separator");
+
+    /**
+     * Indentation of the commit messages.
+     * 4 spaces are used, as this is how the squashed commit message looks like.
+     */
+    private static final String INDENTATION = "    ";
+
+    private final Appendable out;
+    private final Format format;
+    private final long maxLength;
+    private final boolean replaceDoubleQuotes;
+
+    // Note that the git log shows different date formats, depending on configuration.
+    // The choices in the git commit message below matches the squashed commit message
+    // that git generates on a Ubuntu Linux 14.04 with default git installation.
+    // Locale if forced to enligsh to make it independent from operating system
+    // and environment.
+    // Note that it is not the standard ISO format.
+    private final SimpleDateFormat formatter = new SimpleDateFormat("EEE MMM d kk:mm:ss yyyy ZZZZ", Locale.ENGLISH);
+    // The date format of Git's default 'normal' date mode
+    private final SimpleDateFormat squashFormatter = new SimpleDateFormat("EEE MMM d HH:mm:ss yyyy Z", Locale.ENGLISH);
+    private final Date commitTime = new Date();
+    private final StringBuilder entry = new StringBuilder();
+
+    private long length;
+    private int written;
+    private int omitted;
+
+    /**
+     * Constructor for CommitLogWriter, writing the ACCUMULATED format
+     * @param out Where to write the commit listing
+     * @param maxLength The maximum number of characters to write, excluding the trailer
+     * @param replaceDoubleQuotes Whether to replace double quotes with single quotes
+     */
+    public CommitLogWriter(Appendable out, long maxLength, boolean replaceDoubleQuotes) {
+        this(out, Format.ACCUMULATED, maxLength, replaceDoubleQuotes);
+    }
+
+    /**
+     * Constructor for CommitLogWriter
+     * @param out Where to write the commit listing
+     * @param format The format of the commit listing
+     * @param maxLength The maximum number of characters to write, excluding the trailer
+     * @param replaceDoubleQuotes Whether to replace double quotes with single quotes
+     */
+    public CommitLogWriter(Appendable out, Format format, long maxLength, boolean replaceDoubleQuotes) {
+        this.out = out;
+        this.format = format;
+        this.maxLength = maxLength;
+        this.replaceDoubleQuotes = replaceDoubleQuotes;
+    }
+
+    /**
+     * Writes a commit, unless the maximum length is reached.
+     * @param rev The commit to write
+     * @return true if the commit was written, false if it was omitted
+     * @throws IOException when writing fails
+     */
+    public boolean write(RevCommit rev) throws IOException {
+        if (omitted > 0) {
+            omitted++;
+            return false;
+        }
+
+        entry.setLength(0);
+        if (format == Format.SQUASH) {
+            writeSquashEntry(rev);
+        } else {
+            writeAccumulatedEntry(rev);
+        }
+
+        if (length + entry.length() > maxLength) {
+            omitted++;
+            return false;
+        }
+        out.append(entry);
+        length += entry.length();
+        written++;
+        return true;
+    }
+
+    /**
+     * Writes a commit in the ACCUMULATED format.
+     * @param rev The commit to write
+     */
+    private void writeAccumulatedEntry(RevCommit rev) {
+        entry.append("commit ").append(rev.getName()).append(NEWLINE);
+        // In the commit message overview, the author is right one to give credit (author wrote the code)
+        PersonIdent author = rev.getAuthorIdent();
+        entry.append("Author: ");
+        appendText(author.getName());
+        entry.append(" <");
+        appendText(author.getEmailAddress());
+        entry.append('>').append(NEWLINE);
+
+        commitTime.setTime(rev.getCommitTime() * 1000L); // seconds to milis
+        entry.append("Date:   ").append(formatter.format(commitTime)).append(NEWLINE);
+        entry.append(NEWLINE);
+
+        // Using spaces in git commit message formatting, to avoid inconsistent
+        // results based on tab with, and to mimic normal recommendations
+        // on writing commit message (indented bullet lists with space)
+        // following (same) examples:
+        // http://chris.beams.io/posts/git-commit/
+        // http://tbaggery.com/2008/04/19/a-note-about-git-commit-messages.html
+        entry.append(INDENTATION);
+        String fullMessage = rev.getFullMessage();
+        int start = 0;
+        int next;
+        while ((next = fullMessage.indexOf(NEWLINE, start)) >= 0) {
+            appendText(fullMessage.subSequence(start, next));
+            entry.append(NEWLINE).append(INDENTATION);
+            start = next + NEWLINE.length();
+        }
+        appendText(fullMessage.subSequence(start, fullMessage.length()));
+        entry.append(NEWLINE);
+        entry.append(NEWLINE);
+    }
+
+    /**
+     * Writes a commit like Git's medium pretty format does for SQUASH_MSG.
+     * Git only uses '\n' as line separator here, whatever the platform.
+     * Merge parents are abbreviated to 7 characters, Git's default for small repositories.
+     * @param rev The commit to write
+     */
+    private void writeSquashEntry(RevCommit rev) {
+        entry.append("commit ").append(rev.getName()).append('\n');
+        if (rev.getParentCount() > 1) {
+            entry.append("Merge:");
+            for (RevCommit parent : rev.getParents()) {
+                entry.append(' ').append(parent.abbreviate(7).name());
+            }
+            entry.append('\n');
+        }
+        PersonIdent author = rev.getAuthorIdent();
+        entry.append("Author: ");
+        appendText(author.getName());
+        entry.append(" <");
+        appendText(author.getEmailAddress());
+        entry.append('>').append('\n');
+        squashFormatter.setTimeZone(author.getTimeZone());
+        entry.append("Date:   ").append(squashFormatter.format(author.getWhen())).append('\n');
+        entry.append('\n');
+
+        // Leading blank lines are skipped and trailing whitespace dropped, the other lines are indented
+        String fullMessage = rev.getFullMessage();
+        int start = 0;
+        boolean first = true;
+        while (start < fullMessage.length()) {
+            int next = fullMessage.indexOf('\n', start);
+            int lineEnd = next < 0 ? fullMessage.length() : next;
+            CharSequence line = fullMessage.subSequence(start, lineEnd);
+            start = lineEnd + 1;
+            if (first && line.toString().trim().isEmpty()) {
+                continue;
+            }
+            first = false;
+            entry.append(INDENTATION);
+            appendText(line);
+            entry.append('\n');
+        }
+        int end = entry.length();
+        while (end > 0 && Character.isWhitespace(entry.charAt(end - 1))) {
+            end--;
+        }
+        entry.setLength(end);
+        entry.append('\n');
+        entry.append('\n');
+    }
+
+    /**
+     * Writes the trailer summarizing the omitted commits, if any.
+     * @throws IOException when writing fails
+     */
+    public void finish() throws IOException {
+        if (omitted > 0) {
+            out.append(String.format("...and %d more commit%s%n", omitted, omitted == 1 ? "" : "s"));
+        }
+    }
+
+    /**
+     * @return the number of commits written
+     */
+    public int getWritten() {
+        return written;
+    }
+
+    /**
+     * @return the number of commits omitted because of the maximum length
+     */
+    public int getOmitted() {
+        return omitted;
+    }
+
+    private void appendText(CharSequence text) {
+        if (!replaceDoubleQuotes) {
+            entry.append(text);
+            return;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            entry.append(c == '"' ? '\'' : c);
+        }
+    }
+}
@@ -10,7 +10,9 @@ import org.eclipse.jgit.revwalk.RevWalk;
 
 /**
  * Callback used to find the author of a Git commit
+ * @deprecated Use BranchAnalysisCallback, which returns the author of the ready branch tip.
  */
+@Deprecated
 public class FindCommitAuthorCallback extends RepositoryListenerAwareCallback<String> {
 
     /**
@@ -10,7 +10,9 @@ import org.eclipse.jgit.revwalk.RevWalk;
 
 /**
  * Callback to find the message of a given Git commit
+ * @deprecated Use BranchAnalysisCallback, which collects the messages of all commits on the ready branch.
  */
+@Deprecated
 public class FindCommitMessageCallback extends RepositoryListenerAwareCallback<String> {
 
     /**
@@ -0,0 +1,134 @@
+package org.jenkinsci.plugins.pretestedintegration.scm.git;
+
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.merge.ResolveMerger;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+/**
+ * Callback used to find the files that certainly conflict when merging a ready branch into the integration branch.
+ * Does a trial merge in memory, without touching HEAD, the index or the worktree.
+ * Only regular files edited on both sides since a single merge base are reported, as the Git command line
+ * doesn't resolve those either. Conflicts involving deleted or added files may be renames, which the in-memory merge
+ * doesn't detect, and files with attributes may have a merge driver, so those are left for the real merge to decide.
+ */
+public class FindConflictsCallback extends RepositoryListenerAwareCallback<ArrayList<String>> {
+
+    /**
+     * The commit Id of the ready branch tip.
+     */
+    public final ObjectId id;
+
+    /**
+     * The integration branch to merge into, as a revision Git can resolve.
+     */
+    public final String branch;
+
+    /**
+     * Constructor for FindConflictsCallback
+     * @param listener The TaskListener
+     * @param id The commit Id of the ready branch tip
+     * @param branch The integration branch to merge into
+     */
+    public FindConflictsCallback(TaskListener listener, final ObjectId id, final String branch) {
+        super(listener);
+        this.id = id;
+        this.branch = branch;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return the conflicting paths, or an empty list if the integration branch can't be resolved,
+     * or the command line merge might resolve the conflicts differently
+     */
+    @Override
+    public ArrayList<String> invoke(Repository repo, VirtualChannel channel) throws IOException, InterruptedException {
+        ArrayList<String> conflicts = new ArrayList<>();
+        ObjectId target = repo.resolve(branch);
+        if (target == null || !repo.getConfig().getSubsections("merge").isEmpty()
+                || repo.getConfig().getBoolean("rerere", "enabled", false)
+                || repo.getConfig().getString("core", null, "attributesfile") != null
+                || new File(repo.getDirectory(), "info/attributes").exists()) {
+            return conflicts;
+        }
+        RevWalk walk = new RevWalk(repo);
+        try {
+            RevCommit head = walk.parseCommit(target);
+            RevCommit tip = walk.parseCommit(id);
+            ResolveMerger merger = (ResolveMerger) MergeStrategy.RECURSIVE.newMerger(repo, true);
+            if (merger.merge(head, tip)) {
+                return conflicts;
+            }
+
+            walk.reset();
+            walk.setRevFilter(RevFilter.MERGE_BASE);
+            walk.markStart(head);
+            walk.markStart(tip);
+            RevCommit base = walk.next();
+            if (base == null || walk.next() != null) {
+                // Git merges several merge bases recursively, and may end up with other conflicts
+                return conflicts;
+            }
+            for (String path : merger.getUnmergedPaths()) {
+                if (isRegularFile(repo, path, base) && isRegularFile(repo, path, head) && isRegularFile(repo, path, tip)
+                        && !hasAttributes(repo, path, head) && !hasAttributes(repo, path, tip)) {
+                    conflicts.add(path);
+                }
+            }
+            return conflicts;
+        } finally {
+            walk.dispose();
+        }
+    }
+
+    /**
+     * @param repo The repository
+     * @param path The path to look for
+     * @param commit The commit to look in
+     * @return true if the path is a regular or executable file in the tree of the commit
+     * @throws IOException
+     */
+    private boolean isRegularFile(Repository repo, String path, RevCommit commit) throws IOException {
+        TreeWalk treeWalk = TreeWalk.forPath(repo, path, commit.getTree());
+        if (treeWalk == null) {
+            return false;
+        }
+        try {
+            FileMode mode = treeWalk.getFileMode(0);
+            return mode == FileMode.REGULAR_FILE || mode == FileMode.EXECUTABLE_FILE;
+        } finally {
+            treeWalk.release();
+        }
+    }
+
+    /**
+     * Checks for a .gitattributes file in any directory above the path, which may set a merge driver for it.
+     * @param repo The repository
+     * @param path The path of the file
+     * @param commit The commit to look in
+     * @return true if the tree of the commit has a .gitattributes file that may apply to the path
+     * @throws IOException
+     */
+    private boolean hasAttributes(Repository repo, String path, RevCommit commit) throws IOException {
+        int slash = -1;
+        do {
+            TreeWalk treeWalk = TreeWalk.forPath(repo, path.substring(0, slash + 1) + ".gitattributes", commit.getTree());
+            if (treeWalk != null) {
+                treeWalk.release();
+                return true;
+            }
+            slash = path.indexOf('/', slash + 1);
+        } while (slash >= 0);
+        return false;
+    }
+}
@@ -0,0 +1,41 @@
+package org.jenkinsci.plugins.pretestedintegration.scm.git;
+
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import java.io.IOException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Callback used to check if a remote branch exists.
+ * Resolves the single remote-tracking ref, instead of listing every remote branch.
+ */
+public class FindRemoteBranchCallback extends RepositoryListenerAwareCallback<Boolean> {
+
+    /**
+     * The remote branch name, including the remote name.
+     * ex.: origin/ready/feature_1
+     */
+    public final String branch;
+
+    /**
+     * Constructor for FindRemoteBranchCallback
+     * @param listener The TaskListener
+     * @param branch The remote branch name, including the remote name
+     */
+    public FindRemoteBranchCallback(TaskListener listener, final String branch) {
+        super(listener);
+        this.branch = branch;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Boolean invoke(Repository repo, VirtualChannel channel) throws IOException, InterruptedException {
+        // A full ref name is looked up directly; the packed refs are only re-read when they change on disk
+        Ref ref = repo.getRef(Constants.R_REMOTES + branch);
+        return ref != null && Constants.R_REMOTES.concat(branch).equals(ref.getName());
+    }
+}
@@ -0,0 +1,43 @@
+package org.jenkinsci.plugins.pretestedintegration.scm.git;
+
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import java.io.IOException;
+import java.util.ArrayList;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Callback used to find the paths left unmerged in the index by a failed merge.
+ * A merge that stopped on a conflict leaves them, a merge that failed for any other reason doesn't.
+ */
+public class FindUnmergedPathsCallback extends RepositoryListenerAwareCallback<ArrayList<String>> {
+
+    /**
+     * Constructor for FindUnmergedPathsCallback
+     * @param listener The TaskListener
+     */
+    public FindUnmergedPathsCallback(TaskListener listener) {
+        super(listener);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return the paths with conflict stages in the index, each path once
+     */
+    @Override
+    public ArrayList<String> invoke(Repository repo, VirtualChannel channel) throws IOException, InterruptedException {
+        ArrayList<String> paths = new ArrayList<>();
+        DirCache index = repo.readDirCache();
+        for (int i = 0; i < index.getEntryCount(); i++) {
+            DirCacheEntry entry = index.getEntry(i);
+            // The stages of a path are next to each other in the index
+            if (entry.getStage() != DirCacheEntry.STAGE_0
+                    && (paths.isEmpty() || !paths.get(paths.size() - 1).equals(entry.getPathString()))) {
+                paths.add(entry.getPathString());
+            }
+        }
+        return paths;
+    }
+}
@@ -11,7 +11,9 @@ import org.eclipse.jgit.revwalk.RevWalk;
 
 /**
  * Callback used to count the commits between a given Commit and a Branch
+ * @deprecated Use BranchAnalysisCallback, which counts the commits together with the rest of the analysis in one walk.
  */
+@Deprecated
 public class GetCommitCountFromBranchCallback extends RepositoryListenerAwareCallback<Integer> {
 
     /**
@@ -24,6 +26,11 @@ public class GetCommitCountFromBranchCallback extends RepositoryListenerAwareCal
      */
     public final String targetBranchName;
 
+    /**
+     * The count at which to stop walking. 0 means no limit.
+     */
+    public final int limit;
+
     /**
      * Constructor for GetCommitCountFromBranchCallback
      * @param listener The TaskListener
@@ -31,17 +38,33 @@ public class GetCommitCountFromBranchCallback extends RepositoryListenerAwareCal
      * @param targetBranchName The name of the destination branch
      */
     public GetCommitCountFromBranchCallback(TaskListener listener, final ObjectId startObjectId, final String targetBranchName) {
+        this(listener, startObjectId, targetBranchName, 0);
+    }
+
+    /**
+     * Constructor for GetCommitCountFromBranchCallback that stops counting at the given limit.
+     * Use it when only the first few commits matter, e.g. to tell a single commit from several.
+     * @param listener The TaskListener
+     * @param startObjectId The Id of the starting commit
+     * @param targetBranchName The name of the destination branch
+     * @param limit The count at which to stop walking. 0 means no limit.
+     */
+    public GetCommitCountFromBranchCallback(TaskListener listener, final ObjectId startObjectId, final String targetBranchName, int limit) {
         super(listener);
         this.startObjectId = startObjectId;
         this.targetBranchName = targetBranchName;
+        this.limit = limit;
     }
 
     /**
      * {@inheritDoc}
+     * When a limit is set, the returned count is at most the limit.
      */
     @Override
     public Integer invoke(Repository repository, VirtualChannel channel) throws IOException, InterruptedException {
         RevWalk walker = new RevWalk(repository);
+        // Only the commit graph is needed, not the messages
+        walker.setRetainBody(false);
         RevCommit originCommit = walker.parseCommit(startObjectId);
         ObjectId targetId = repository.resolve(targetBranchName);
         RevCommit targetCommit = walker.parseCommit(targetId);
@@ -51,7 +74,7 @@ public class GetCommitCountFromBranchCallback extends RepositoryListenerAwareCal
 
         int commitCount = 0;
         Iterator<RevCommit> iterator = walker.iterator();
-        while (iterator.hasNext()) {
+        while ((limit <= 0 || commitCount < limit) && iterator.hasNext()) {
             iterator.next();
             commitCount++;
         }
@@ -7,9 +7,11 @@ import hudson.Launcher;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
+import hudson.model.Cause;
 import hudson.model.Result;
 import hudson.model.TaskListener;
 import hudson.plugins.git.Branch;
+import hudson.plugins.git.GitException;
 import hudson.plugins.git.extensions.impl.RelativeTargetDirectory;
 import hudson.plugins.git.GitSCM;
 import hudson.plugins.git.Revision;
@@ -27,21 +29,31 @@ import java.util.logging.Logger;
 import java.util.Set;
 import jenkins.model.Jenkins;
 import org.apache.commons.lang.StringUtils;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteConfig;
+import org.eclipse.jgit.util.RawParseUtils;
 import org.jenkinsci.plugins.gitclient.GitClient;
 import org.jenkinsci.plugins.multiplescms.MultiSCM;
 import org.jenkinsci.plugins.pretestedintegration.AbstractSCMBridge;
 import org.jenkinsci.plugins.pretestedintegration.exceptions.CommitFailedException;
 import org.jenkinsci.plugins.pretestedintegration.exceptions.BranchDeletionFailedException;
 import org.jenkinsci.plugins.pretestedintegration.exceptions.EstablishingWorkspaceFailedException;
+import org.jenkinsci.plugins.pretestedintegration.exceptions.IntegrationFailedException;
 import org.jenkinsci.plugins.pretestedintegration.exceptions.NothingToDoException;
 import org.jenkinsci.plugins.pretestedintegration.exceptions.UnsupportedConfigurationException;
+import org.jenkinsci.plugins.pretestedintegration.IntegrationContext;
+import org.jenkinsci.plugins.pretestedintegration.IntegrationLease;
+import org.jenkinsci.plugins.pretestedintegration.IntegrationResultCache;
 import org.jenkinsci.plugins.pretestedintegration.IntegrationStrategy;
 import org.jenkinsci.plugins.pretestedintegration.IntegrationStrategyDescriptor;
+import org.jenkinsci.plugins.pretestedintegration.IntegrationTimingAction;
 import org.jenkinsci.plugins.pretestedintegration.PretestedIntegrationBuildWrapper;
 import org.jenkinsci.plugins.pretestedintegration.SCMBridgeDescriptor;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 /**
  * The Git SCM Bridge.
@@ -49,6 +61,21 @@ import org.kohsuke.stapler.DataBoundConstructor;
 public class GitBridge extends AbstractSCMBridge {
     private static final Logger LOGGER = Logger.getLogger(GitBridge.class.getName());
 
+    /**
+     * Where integration commits are shared on the integration repository, followed by the commit Id.
+     */
+    static final String SHARED_INTEGRATION_REFS = "refs/pretested/";
+
+    /**
+     * Delay before the first retry of a rejected push, in milliseconds. Grows linearly with each retry.
+     */
+    private static final long PUSH_RETRY_DELAY = Long.getLong(GitBridge.class.getName() + ".pushRetryDelay", 2000);
+
+    /**
+     * Number of differing paths up to which only those paths are checked out, instead of the whole integration branch.
+     */
+    private static final int PARTIAL_CHECKOUT_LIMIT = Integer.getInteger(GitBridge.class.getName() + ".partialCheckoutLimit", 1000);
+
     /**
      * The name of the integration repository.
      */
@@ -59,6 +86,16 @@ public class GitBridge extends AbstractSCMBridge {
      */
     private FilePath workingDirectory;
 
+    /**
+     * Whether to push the integration branch and delete the development branch in a single atomic push.
+     */
+    private boolean atomicPush;
+
+    /**
+     * How many times a rejected push of the integration branch is retried. 0 means never.
+     */
+    private int pushRetries;
+
     /**
      * Constructor for GitBridge.
      * DataBound for use in the UI.
@@ -75,6 +112,7 @@ public class GitBridge extends AbstractSCMBridge {
 
     /***
      * Returns the Git SCM for the relevant build data.
+     * Resolved once per build and cached in the build's IntegrationContext.
      * @param build The Build
      * @param listener The BuildListener
      * @return the Git SCM for the relevant build data.
@@ -86,6 +124,27 @@ public class GitBridge extends AbstractSCMBridge {
      * When multiple, ambiguous relevant BuildDatas are found.
      */
     protected GitSCM findScm(AbstractBuild<?, ?> build, TaskListener listener) throws InterruptedException, NothingToDoException, UnsupportedConfigurationException {
+        IntegrationContext context = IntegrationContext.of(build);
+        GitSCM gitScm = context.get(GitSCM.class);
+        if (gitScm == null) {
+            gitScm = context.put(GitSCM.class, findScmImpl(build, listener));
+        }
+        return gitScm;
+    }
+
+    /***
+     * Finds the Git SCM for the relevant build data.
+     * @param build The Build
+     * @param listener The BuildListener
+     * @return the Git SCM for the relevant build data.
+     * @throws InterruptedException
+     * When no matching SCMs are found
+     * @throws NothingToDoException
+     * When no relevant BuildData is found.
+     * @throws UnsupportedConfigurationException
+     * When multiple, ambiguous relevant BuildDatas are found.
+     */
+    private GitSCM findScmImpl(AbstractBuild<?, ?> build, TaskListener listener) throws InterruptedException, NothingToDoException, UnsupportedConfigurationException {
         BuildData buildData = findRelevantBuildData(build, listener);
 
         SCM scm = build.getProject().getScm();
@@ -128,18 +187,45 @@ public class GitBridge extends AbstractSCMBridge {
         throw new InterruptedException("No Git repository configured in MultiSCM that matches the build data branch.");
     }
 
+    /**
+     * Returns the Git client for the workspace of the given build.
+     * The client is created once per build and cached in the build's IntegrationContext,
+     * as creating it means a round-trip to the node the build runs on.
+     * @param build The Build
+     * @param listener The TaskListener
+     * @return the Git client for the workspace
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public GitClient findGitClient(AbstractBuild<?, ?> build, TaskListener listener) throws IOException, InterruptedException {
+        IntegrationContext context = IntegrationContext.of(build);
+        GitClient client = context.get(GitClient.class);
+        if (client == null) {
+            GitSCM gitScm = findScm(build, listener);
+            client = context.put(GitClient.class, gitScm.createClient(listener, getEnvironment(build, listener), build, build.getWorkspace()));
+        }
+        return client;
+    }
+
     /**
      * {@inheritDoc }
      */
     @Override
     public void ensureBranch(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener, String branch) throws EstablishingWorkspaceFailedException {
         try {
-            EnvVars environment = build.getEnvironment(listener);
+            EnvVars environment = getEnvironment(build, listener);
             String expandedBranch = getExpandedBranch(environment);
             String expandedRepo = getExpandedRepository(environment);
-            GitClient client = findScm(build, listener).createClient(listener, environment, build, build.getWorkspace());
-            listener.getLogger().println(String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Checking out integration branch %s:", expandedBranch));
-            client.checkout().branch(expandedBranch).ref(expandedRepo + "/" + expandedBranch).deleteBranchIfExist(true).execute();
+            GitClient client = findGitClient(build, listener);
+            WorkspacePreparationAction preparation = checkoutIncrementally(client, listener, expandedBranch, expandedRepo + "/" + expandedBranch);
+            listener.getLogger().println(String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Workspace preparation: %s checkout (%d differing paths)", preparation.getMode(), preparation.getDifferingPaths()));
+            if (preparation.getMode() == WorkspacePreparationAction.Mode.FULL) {
+                listener.getLogger().println(String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Checking out integration branch %s:", expandedBranch));
+                client.checkout().branch(expandedBranch).ref(expandedRepo + "/" + expandedBranch).deleteBranchIfExist(true).execute();
+            }
+            if (build.getAction(WorkspacePreparationAction.class) == null) {
+                build.addAction(preparation);
+            }
             update(build, launcher, listener);
         } catch (IOException | InterruptedException ex) {
             LOGGER.log(Level.SEVERE, "ensureBranch", ex);
@@ -148,7 +234,29 @@ public class GitBridge extends AbstractSCMBridge {
     }
 
     /**
-     * Pulls in the remote branch
+     * Puts a clean workspace on the remote integration branch without a full checkout.
+     * Nothing is checked out when HEAD is already on the integration branch head, detached or not,
+     * and only the differing paths are when few of them differ.
+     * @param client The GitClient
+     * @param listener The BuildListener
+     * @param branch The name of the local integration branch
+     * @param remoteBranch The name of the remote integration branch
+     * @return how the workspace was prepared, FULL if it still needs a full checkout
+     */
+    private WorkspacePreparationAction checkoutIncrementally(GitClient client, BuildListener listener, String branch, String remoteBranch) {
+        try {
+            return client.withRepository(new WorkspaceStateCallback(listener, branch, Constants.R_REMOTES + remoteBranch, PARTIAL_CHECKOUT_LIMIT));
+        } catch (IOException | InterruptedException | GitException ex) {
+            LOGGER.log(Level.FINE, "Failed to check out the integration branch incrementally, doing a full checkout", ex);
+            return new WorkspacePreparationAction(WorkspacePreparationAction.Mode.FULL, -1);
+        }
+    }
+
+    /**
+     * Pulls in the remote branch.
+     * Only the integration branch is fetched, straight into its remote-tracking ref.
+     * The Git plugin has already fetched the configured refspecs, ready branch included, when the build started,
+     * so this fetch only transfers what was pushed to the integration branch since then.
      * @param build The Build
      * @param launcher The Launcher
      * @param listener The Listener
@@ -157,12 +265,23 @@ public class GitBridge extends AbstractSCMBridge {
      */
     protected void update(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws IOException, InterruptedException {
         try {
-            EnvVars environment = build.getEnvironment(listener);
+            EnvVars environment = getEnvironment(build, listener);
             String expandedRepo = getExpandedRepository(environment);
             String expandedBranch = getExpandedBranch(environment);
-            GitClient client = findScm(build, listener).createClient(listener, build.getEnvironment(listener), build, build.getWorkspace());
-            client.fetch(expandedRepo, new RefSpec("refs/heads/" + expandedBranch));
-            client.merge().setRevisionToMerge(client.revParse(expandedRepo + "/" + expandedBranch)).execute();
+            GitClient client = findGitClient(build, listener);
+            RefSpec refSpec = new RefSpec("+" + Constants.R_HEADS + expandedBranch + ":" + Constants.R_REMOTES + expandedRepo + "/" + expandedBranch);
+            LOGGER.log(Level.FINE, String.format("Fetching %s from %s", refSpec, expandedRepo));
+            long start = System.nanoTime();
+            client.fetch(expandedRepo, refSpec);
+            IntegrationTimingAction.record(build, IntegrationTimingAction.FETCH, start);
+            ObjectId integrationHead = client.revParse(expandedRepo + "/" + expandedBranch);
+            IntegrationContext.of(build).put(IntegrationBase.class, new IntegrationBase(integrationHead));
+            IntegrationKey key = IntegrationContext.of(build).get(IntegrationKey.class);
+            if (key != null) {
+                // The outcome belongs to the head the changes are merged on, which may have moved since the checkout
+                IntegrationContext.of(build).put(IntegrationKey.class, key.on(integrationHead));
+            }
+            client.merge().setRevisionToMerge(integrationHead).execute();
         } catch (InterruptedException | IOException ex) {
             throw new EstablishingWorkspaceFailedException(ex);
         }
@@ -170,28 +289,112 @@ public class GitBridge extends AbstractSCMBridge {
 
     /**
      * {@inheritDoc }
+     * When the push is rejected because the integration branch has moved, the build fails,
+     * as the integration it built isn't on top of the integration branch anymore.
+     * With push retries enabled, the changes are integrated again on top of the new integration branch,
+     * and the push is retried only if that gives exactly the tree that was built.
      */
     @Override
     public void commit(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws CommitFailedException {
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int retries = 0;
         try {
-            EnvVars environment = build.getEnvironment(listener);
+            EnvVars environment = getEnvironment(build, listener);
             String expandedRepo = getExpandedRepository(environment);
             String expandedBranch = getExpandedBranch(environment);
-            
-            GitClient client = findScm(build, listener).createClient(listener, build.getEnvironment(listener), build, build.getWorkspace());
-            LOGGER.log(Level.INFO, "Pushing changes to integration branch:");
-            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Pushing changes to integration branch:");
-            client.push(expandedRepo, "refs/heads/" + expandedBranch);
+
+            GitClient client = findGitClient(build, listener);
+            while (true) {
+                try {
+                    LOGGER.log(Level.INFO, "Pushing changes to integration branch:");
+                    listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Pushing changes to integration branch:");
+                    long start = System.nanoTime();
+                    try {
+                        client.push(expandedRepo, "refs/heads/" + expandedBranch);
+                    } finally {
+                        IntegrationTimingAction.record(build, IntegrationTimingAction.PUSH, start);
+                    }
+                    break;
+                } catch (GitException ex) {
+                    if (!isRejectedPush(ex)) {
+                        throw ex;
+                    }
+                    if (retries >= getPushRetries()) {
+                        String msg = retries == 0
+                                ? String.format("Push rejected, integration branch %s has moved since the integration was built.", expandedBranch)
+                                : String.format("Push rejected, integration branch %s has moved again after %d retries.", expandedBranch, retries);
+                        throw new CommitFailedException(msg);
+                    }
+                    retries++;
+                    String msg = String.format("Push rejected, integration branch %s has moved. Integrating again (retry %d of %d)", expandedBranch, retries, getPushRetries());
+                    LOGGER.log(Level.WARNING, msg);
+                    listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + msg);
+                    Thread.sleep(PUSH_RETRY_DELAY * retries);
+                    integrateAgain(build, launcher, listener, expandedBranch);
+                }
+            }
+            PushRetries retried = IntegrationContext.of(build).get(PushRetries.class);
+            if (retried != null) {
+                listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + String.format("Push succeeded after %d retries in %d ms", retried.count, System.currentTimeMillis() - retried.start));
+            }
             LOGGER.log(Level.INFO, "Done pushing changes");
             listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Done pushing changes");
+        } catch (CommitFailedException ex) {
+            LOGGER.log(Level.SEVERE, ex.getMessage());
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + ex.getMessage());
+            throw ex;
         } catch (IOException | InterruptedException ex) {
             LOGGER.log(Level.SEVERE, "Failed to push changes to integration branch. Exception:", ex);
             listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + String.format("Failed to push changes to integration branch. Exception %s", ex));
-            throw new CommitFailedException(String.format("Failed to push changes to integration branch, message was:%n%s", output.toString()));
+            throw new CommitFailedException(String.format("Failed to push changes to integration branch, message was:%n%s", ex.getMessage()));
         }
     }
 
+    /**
+     * Checks whether a push failed because the remote branch has moved, rather than for other reasons.
+     * @param ex The exception thrown by the push
+     * @return true if the push was rejected as not fast-forward
+     */
+    private boolean isRejectedPush(GitException ex) {
+        String message = ex.getMessage();
+        return message != null && (message.contains("non-fast-forward") || message.contains("fetch first"));
+    }
+
+    /**
+     * Integrates the changes again on top of the current remote integration branch,
+     * and checks that it gives exactly the tree that was built. Counted as a push retry.
+     * The branch analysis is dropped, as it was made against the previous integration branch.
+     * @param build The Build
+     * @param launcher The Launcher
+     * @param listener The BuildListener
+     * @param branch The name of the integration branch
+     * @throws CommitFailedException when the changes no longer integrate, or integrate to content that wasn't built
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private void integrateAgain(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener, String branch) throws IOException, InterruptedException {
+        IntegrationContext context = IntegrationContext.of(build);
+        GitClient client = findGitClient(build, listener);
+        PushRetries retries = context.get(PushRetries.class);
+        if (retries == null) {
+            retries = new PushRetries(client.revParse(Constants.HEAD + "^{tree}"));
+            context.put(PushRetries.class, retries);
+        }
+        retries.count++;
+        context.remove(BranchAnalysis.class);
+        try {
+            ensureBranch(build, launcher, listener, getBranch());
+            prepareWorkspace(build, launcher, listener);
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to integrate again on the moved integration branch. Exception:", ex);
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + String.format("Failed to integrate again on the moved integration branch. Exception %s", ex));
+            throw new CommitFailedException(String.format("Failed to integrate again on the moved integration branch, message was:%n%s", ex.getMessage()));
+        }
+        if (!retries.builtTree.equals(client.revParse(Constants.HEAD + "^{tree}"))) {
+            throw new CommitFailedException(String.format("Integrating again on the new head of integration branch %s gives content that wasn't built, not pushing it.", branch));
+        }
+        listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Integrating again gives exactly the content that was built");
+    }
+
     /**
      * Retrieves the BuildData for the given build relevant to the Integration Repository.
      * <ul>
@@ -214,6 +417,9 @@ public class GitBridge extends AbstractSCMBridge {
      * or that commits are heads.
      * See JENKINS-25542, JENKINS-25512, JENKINS-24909
      *
+     * The result is cached in the build's IntegrationContext, as the BuildData doesn't change once the
+     * Git plugin has checked out the revision.
+     *
      * @param build The Build
      * @param listener The TaskListener
      * @return The relevant BuildData
@@ -223,6 +429,11 @@ public class GitBridge extends AbstractSCMBridge {
      * If multiple, ambiguous BuildDatas were found.
      */
     public BuildData findRelevantBuildData(AbstractBuild<?, ?> build, TaskListener listener) throws NothingToDoException, UnsupportedConfigurationException {
+        IntegrationContext context = IntegrationContext.of(build);
+        BuildData relevant = context.get(BuildData.class);
+        if (relevant != null) {
+            return relevant;
+        }
         List<BuildData> buildDatas = build.getActions(BuildData.class);
         if (buildDatas.isEmpty()) {
             throw new NothingToDoException("No Git SCM change found.");
@@ -238,7 +449,7 @@ public class GitBridge extends AbstractSCMBridge {
             LOGGER.log(Level.SEVERE, String.format("Ambiguous build data found. Matching repository names and multiple changes to integrate.%n%s", prettyBuildDatasString));
             throw new UnsupportedConfigurationException(UnsupportedConfigurationException.AMBIGUITY_IN_BUILD_DATA);
         } else {
-            return relevantBuildData.iterator().next();
+            return context.put(BuildData.class, relevantBuildData.iterator().next());
         }
     }
 
@@ -254,22 +465,25 @@ public class GitBridge extends AbstractSCMBridge {
         Set<BuildData> relevantBuildData = new HashSet<>();
         Set<String> revisions = new HashSet<>(); //Used to detect duplicates
 
+        String expandedRepository;
+        try {
+            expandedRepository = getExpandedRepository(getEnvironment(build, listener)) + "/"; // Assume no trailing slash in configuration
+        } catch (IOException | InterruptedException ex) {
+            Logger.getLogger(GitBridge.class.getName()).log(Level.SEVERE, null, ex);
+            return relevantBuildData;
+        }
+
         for (BuildData buildData : buildDatas) {
-            try {
-                if(buildData.lastBuild == null) continue;
-                Branch buildBranch = buildData.lastBuild.revision.getBranches().iterator().next();
-                String expandedRepository = getExpandedRepository(build.getEnvironment(listener)) + "/"; // Assume no trailing slash in configuration
-                if (buildBranch.getName().startsWith(expandedRepository)) { // Check branch matches integration repository
-                    String revisionSha = buildData.lastBuild.revision.getSha1String();
-                    boolean isDuplicateEntry = !revisions.add(revisionSha); // Check we haven't seen this changeset before
-                    if (isDuplicateEntry) {
-                        LOGGER.log(Level.INFO, String.format("Revision %s has a duplicate BuildData entry. Using first.", revisionSha));
-                    } else {
-                        relevantBuildData.add(buildData);
-                    }
+            if(buildData.lastBuild == null) continue;
+            Branch buildBranch = buildData.lastBuild.revision.getBranches().iterator().next();
+            if (buildBranch.getName().startsWith(expandedRepository)) { // Check branch matches integration repository
+                String revisionSha = buildData.lastBuild.revision.getSha1String();
+                boolean isDuplicateEntry = !revisions.add(revisionSha); // Check we haven't seen this changeset before
+                if (isDuplicateEntry) {
+                    LOGGER.log(Level.INFO, String.format("Revision %s has a duplicate BuildData entry. Using first.", revisionSha));
+                } else {
+                    relevantBuildData.add(buildData);
                 }
-            } catch (IOException | InterruptedException ex) {
-                Logger.getLogger(GitBridge.class.getName()).log(Level.SEVERE, null, ex);
             }
         }
         return relevantBuildData;
@@ -304,6 +518,131 @@ public class GitBridge extends AbstractSCMBridge {
         findRelevantBuildData(build, listener);
     }
 
+    /**
+     * {@inheritDoc }
+     * Does a trial merge in memory against the remote integration branch, as fetched by the Git plugin,
+     * and fails the build before the checkout if files edited on both sides conflict.
+     * Conflicts the merge in the workspace might still resolve, e.g. on a rename JGit doesn't detect, are left to it.
+     * Known outcomes of the same integration are looked up in the IntegrationResultCache first,
+     * a known merge failure fails the build right away, unless the build was started by a user.
+     * The check is best effort: if it can't be done, the integration proceeds as usual.
+     */
+    @Override
+    public void checkForConflicts(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws IntegrationFailedException, NothingToDoException, UnsupportedConfigurationException {
+        BuildData gitBuildData = findRelevantBuildData(build, listener);
+        Branch gitDataBranch = gitBuildData.lastBuild.revision.getBranches().iterator().next();
+        GitClient client;
+        String integrationBranch;
+        String repositoryUrl;
+        ObjectId integrationHead;
+        try {
+            EnvVars environment = getEnvironment(build, listener);
+            String expandedRepo = getExpandedRepository(environment);
+            integrationBranch = expandedRepo + "/" + getExpandedBranch(environment);
+            repositoryUrl = findRemoteUrl(build, listener, expandedRepo);
+            client = findGitClient(build, listener);
+            integrationHead = client.revParse(Constants.R_REMOTES + integrationBranch);
+        } catch (IOException | InterruptedException | GitException ex) {
+            LOGGER.log(Level.WARNING, "Failed to check for conflicts, continuing with the integration", ex);
+            return;
+        }
+
+        IntegrationKey key = new IntegrationKey(repositoryUrl, integrationHead, gitBuildData.lastBuild.revision.getSha1String(), integrationStrategy.getClass().getName());
+        IntegrationContext.of(build).put(IntegrationKey.class, key);
+        IntegrationResultCache.Entry known = IntegrationResultCache.get().lookup(key.value());
+        if (known != null && known.getOutcome() == IntegrationResultCache.Outcome.MERGE_FAILED && build.getCause(Cause.UserIdCause.class) != null) {
+            // Started by hand, the user wants the merge tried again
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + String.format("The same integration failed to merge in %s, merging again as the build was started by a user", known.getBuild()));
+            IntegrationResultCache.get().forget(key.value());
+        } else if (known != null) {
+            if (known.getOutcome() == IntegrationResultCache.Outcome.MERGE_FAILED) {
+                String msg = String.format("Development branch %s is known to conflict with integration branch %s, see %s", gitDataBranch.getName(), integrationBranch, known.getBuild());
+                LOGGER.log(Level.WARNING, msg);
+                listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + msg);
+                throw new IntegrationFailedException(msg);
+            } else if (known.getOutcome() == IntegrationResultCache.Outcome.BUILD_SUCCEEDED) {
+                listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + String.format("The same integration was built successfully by %s as commit %s", known.getBuild(), known.getCommit()));
+            } else {
+                listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + String.format("The same integration failed to build in %s", known.getBuild()));
+            }
+        }
+
+        List<String> conflicts;
+        try {
+            conflicts = client.withRepository(new FindConflictsCallback(listener, gitBuildData.lastBuild.revision.getSha1(), integrationHead.getName()));
+        } catch (IOException | InterruptedException | GitException ex) {
+            LOGGER.log(Level.WARNING, "Failed to check for conflicts, continuing with the integration", ex);
+            return;
+        }
+        if (!conflicts.isEmpty()) {
+            String msg = String.format("Development branch %s conflicts with integration branch %s in: %s", gitDataBranch.getName(), integrationBranch, conflicts);
+            LOGGER.log(Level.WARNING, msg);
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + msg);
+            throw new IntegrationFailedException(msg);
+        }
+    }
+
+    /**
+     * Remembers in the IntegrationResultCache that the changes failed to merge in the workspace.
+     * Called by the strategies when the merge command itself fails.
+     * Only a content conflict is remembered: the merge must have reported it, and left unmerged paths in the index.
+     * Anything else, e.g. a locked index, a full disk or a killed process, may well go away on the next build.
+     * @param build The Build
+     * @param listener The TaskListener
+     * @param failure The exception thrown by the merge
+     */
+    void recordMergeFailure(AbstractBuild<?, ?> build, TaskListener listener, GitException failure) {
+        IntegrationKey key = IntegrationContext.of(build).get(IntegrationKey.class);
+        if (key == null || !reportsConflict(failure)) {
+            return;
+        }
+        List<String> unmerged;
+        try {
+            unmerged = findGitClient(build, listener).withRepository(new FindUnmergedPathsCallback(listener));
+        } catch (IOException | InterruptedException | GitException ex) {
+            LOGGER.log(Level.WARNING, "Failed to read the index after the merge, not remembering the merge failure", ex);
+            return;
+        }
+        if (!unmerged.isEmpty()) {
+            IntegrationResultCache.get().record(new IntegrationResultCache.Entry(key.value(), IntegrationResultCache.Outcome.MERGE_FAILED, null, build.getFullDisplayName()));
+        }
+    }
+
+    /**
+     * @param failure The exception thrown by the merge
+     * @return true if the output of the merge command, kept in the exception or one of its causes, reports a conflict
+     */
+    private static boolean reportsConflict(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && (t.getMessage().contains("CONFLICT") || t.getMessage().contains("Automatic merge failed"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remembers the outcome of the build in the IntegrationResultCache,
+     * together with the integration commit in the workspace.
+     * @param build The Build
+     * @param listener The BuildListener
+     * @param succeeded Whether the build was good enough to publish the integration
+     */
+    private void recordOutcome(AbstractBuild<?, ?> build, BuildListener listener, boolean succeeded) {
+        IntegrationKey key = IntegrationContext.of(build).get(IntegrationKey.class);
+        if (key == null) {
+            return;
+        }
+        String commit = null;
+        try {
+            commit = findGitClient(build, listener).revParse("HEAD").getName();
+        } catch (IOException | InterruptedException | GitException ex) {
+            LOGGER.log(Level.FINE, "Failed to resolve the integration commit", ex);
+        }
+        IntegrationResultCache.Outcome outcome = succeeded ? IntegrationResultCache.Outcome.BUILD_SUCCEEDED : IntegrationResultCache.Outcome.BUILD_FAILED;
+        IntegrationResultCache.get().record(new IntegrationResultCache.Entry(key.value(), outcome, commit, build.getFullDisplayName()));
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -317,10 +656,12 @@ public class GitBridge extends AbstractSCMBridge {
         if (build.getResult().isBetterOrEqualTo(getRequiredResult())) {
             try {
                 LOGGER.log(Level.INFO, "Deleting development branch:");
-                String expandedRepo = getExpandedRepository(build.getEnvironment(listener));
+                String expandedRepo = getExpandedRepository(getEnvironment(build, listener));
                 listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Deleting development branch:");
-                GitClient client = findScm(build, listener).createClient(listener, build.getEnvironment(listener), build, build.getWorkspace());
+                GitClient client = findGitClient(build, listener);
+                long start = System.nanoTime();
                 client.push(expandedRepo, ":" + removeRepository(gitDataBranch.getName()));
+                IntegrationTimingAction.record(build, IntegrationTimingAction.DELETE_BRANCH, start);
                 listener.getLogger().println("push " + expandedRepo + " :" + removeRepository(gitDataBranch.getName()));
                 LOGGER.log(Level.INFO, "Done deleting development branch");
                 listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Done deleting development branch");
@@ -332,6 +673,93 @@ public class GitBridge extends AbstractSCMBridge {
         }
     }
 
+    /**
+     * Pushes the integration branch and deletes the development branch in one atomic push.
+     * Uses 'git push --atomic', which GitClient doesn't offer, so either both refs are updated or none are.
+     * The credentials selected for the integration repository are passed to Git like the GitClient does.
+     * Any failure, such as a Git or server without atomic push support, is reported by returning false,
+     * leaving the refs untouched for the usual two-step push.
+     * @param build The Build
+     * @param launcher The Launcher
+     * @param listener The BuildListener
+     * @return true if both refs were updated, false if the two-step push should be used instead
+     * @throws NothingToDoException
+     * @throws UnsupportedConfigurationException
+     */
+    protected boolean pushAtomically(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws NothingToDoException, UnsupportedConfigurationException {
+        BuildData gitBuildData = findRelevantBuildData(build, listener);
+        Branch gitDataBranch = gitBuildData.lastBuild.revision.getBranches().iterator().next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CliGitCredentials credentials = null;
+        try {
+            EnvVars environment = getEnvironment(build, listener);
+            String expandedRepo = getExpandedRepository(environment);
+            String expandedBranch = getExpandedBranch(environment);
+            String devBranch = removeRepository(gitDataBranch.getName());
+            GitSCM gitScm = findScm(build, listener);
+            String gitExe = gitScm.getGitExe(build.getBuiltOn(), listener);
+            FilePath workTree = findGitClient(build, listener).getWorkTree();
+
+            // Never wait for credentials on a terminal, fail and fall back instead
+            EnvVars pushEnvironment = new EnvVars(environment);
+            pushEnvironment.put("GIT_TERMINAL_PROMPT", "0");
+            credentials = CliGitCredentials.setUp(build, findRemoteConfig(gitScm, expandedRepo), launcher.isUnix(), workTree.child(".git").child("preint-tmp"), pushEnvironment);
+            if (credentials == null) {
+                listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + "The credentials of the integration repository can't be used for an atomic push on this node, using separate pushes.");
+                return false;
+            }
+
+            LOGGER.log(Level.INFO, "Pushing changes and deleting development branch atomically:");
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Pushing changes and deleting development branch atomically:");
+            long start = System.nanoTime();
+            int status = launcher.launch()
+                    .cmds(gitExe, "push", "--atomic", expandedRepo, "refs/heads/" + expandedBranch, ":" + devBranch)
+                    .envs(pushEnvironment)
+                    .pwd(workTree)
+                    .stdout(output)
+                    .stderr(output)
+                    .join();
+            IntegrationTimingAction.record(build, IntegrationTimingAction.PUSH, start);
+            if (status != 0) {
+                LOGGER.log(Level.WARNING, "Atomic push failed, falling back to separate pushes. Output:\n{0}", output.toString());
+                listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + String.format("Atomic push failed, falling back to separate pushes. Output was:%n%s", output.toString()));
+                return false;
+            }
+            listener.getLogger().println("push --atomic " + expandedRepo + " refs/heads/" + expandedBranch + " :" + devBranch);
+            LOGGER.log(Level.INFO, "Done pushing changes and deleting development branch");
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Done pushing changes and deleting development branch atomically");
+            return true;
+        } catch (IOException | InterruptedException ex) {
+            LOGGER.log(Level.WARNING, "Atomic push failed, falling back to separate pushes. Exception:", ex);
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Atomic push failed, falling back to separate pushes. Exception: " + ex.getMessage());
+            return false;
+        } finally {
+            if (credentials != null) {
+                credentials.close();
+            }
+        }
+    }
+
+    /**
+     * Finds the remote configuration of the integration repository.
+     * @param gitScm The Git SCM
+     * @param repository The name of the integration repository
+     * @return the remote configuration, or null if it isn't configured in the Git SCM
+     */
+    private UserRemoteConfig findRemoteConfig(GitSCM gitScm, String repository) {
+        List<UserRemoteConfig> configs = gitScm.getUserRemoteConfigs();
+        for (UserRemoteConfig config : configs) {
+            if (repository.equals(config.getName())) {
+                return config;
+            }
+        }
+        // The Git plugin names a single unnamed remote 'origin'
+        if (configs.size() == 1 && StringUtils.isBlank(configs.get(0).getName())) {
+            return configs.get(0);
+        }
+        return null;
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -363,6 +791,193 @@ public class GitBridge extends AbstractSCMBridge {
         return branch.substring(branch.indexOf('/') + 1, branch.length());
     }
 
+    /**
+     * Pushes the integration branch and deletes the ready branch, under the lease of the integration branch.
+     * Builds publishing to the same branch of the same remote, from any job, wait for each other
+     * rather than having their pushes rejected.
+     * @param build The Build
+     * @param launcher The Launcher
+     * @param listener The BuildListener
+     * @throws IOException when publishing fails, or the lease couldn't be acquired in time
+     */
+    private void publish(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws IOException {
+        IntegrationLease lease;
+        String expandedRepo;
+        String expandedBranch;
+        try {
+            EnvVars environment = getEnvironment(build, listener);
+            expandedRepo = getExpandedRepository(environment);
+            expandedBranch = getExpandedBranch(environment);
+            String key = IntegrationLease.key(findRemoteUrl(build, listener, expandedRepo), expandedBranch);
+            int waiting = IntegrationLease.getQueueLength(key);
+            if (waiting > 0) {
+                listener.getLogger().println(String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Waiting for %d other build(s) to publish to %s", waiting, key));
+            }
+            lease = IntegrationLease.acquire(key, IntegrationLease.TIMEOUT);
+            if (lease == null) {
+                String msg = String.format("Timed out after %d ms waiting to publish to %s", IntegrationLease.TIMEOUT, key);
+                LOGGER.log(Level.SEVERE, msg);
+                listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + msg);
+                throw new CommitFailedException(msg);
+            }
+        } catch (InterruptedException ex) {
+            throw new CommitFailedException(String.format("Interrupted while waiting to publish: %s", ex.getMessage()));
+        }
+
+        IntegrationTimingAction.of(build).add(IntegrationTimingAction.LEASE_WAIT, lease.getWaitMillis());
+        try {
+            checkIntegrationBase(build, launcher, listener, expandedRepo, expandedBranch);
+            boolean pushedAtomically = isAtomicPush() && pushAtomically(build, launcher, listener);
+            if (!pushedAtomically) {
+                commit(build, launcher, listener);
+                deleteIntegratedBranch(build, launcher, listener);
+            }
+        } finally {
+            PushRetries retries = IntegrationContext.of(build).get(PushRetries.class);
+            if (retries != null) {
+                build.addAction(new PushRetryAction(retries.count, System.currentTimeMillis() - retries.start));
+            }
+            lease.release();
+            build.addAction(new IntegrationLeaseAction(lease.getWaitMillis(), lease.getHoldMillis()));
+            String msg = String.format("Lease on %s waited for %d ms, held for %d ms", lease.getKey(), lease.getWaitMillis(), lease.getHoldMillis());
+            LOGGER.log(Level.INFO, msg);
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + msg);
+        }
+    }
+
+    /**
+     * Checks, under the lease, that the remote integration branch is still on the commit the integration was built on.
+     * The lease only orders the pushes of Jenkins builds, others may have pushed since the integration was made.
+     * If the branch has moved, the changes are integrated again on the new head right away, as a push retry,
+     * so the push that follows under the lease isn't rejected.
+     * @param build The Build
+     * @param launcher The Launcher
+     * @param listener The BuildListener
+     * @param repository The name of the integration repository
+     * @param branch The name of the integration branch
+     * @throws IOException when the integration branch has moved, and integrating again doesn't give the content that was built
+     */
+    private void checkIntegrationBase(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener, String repository, String branch) throws IOException {
+        IntegrationBase base = IntegrationContext.of(build).get(IntegrationBase.class);
+        if (base == null) {
+            return;
+        }
+        ObjectId head;
+        try {
+            // The URL the Git plugin registered the credentials of the remote for
+            UserRemoteConfig remote = findRemoteConfig(findScm(build, listener), repository);
+            String url = remote != null ? remote.getUrl() : findRemoteUrl(build, listener, repository);
+            head = findGitClient(build, listener).getHeadRev(url, Constants.R_HEADS + branch);
+        } catch (IOException | InterruptedException | GitException ex) {
+            LOGGER.log(Level.WARNING, "Failed to read the head of the integration branch, leaving it to the push", ex);
+            return;
+        }
+        if (base.commit.equals(head)) {
+            return;
+        }
+        if (head == null) {
+            String msg = String.format("Integration branch %s no longer exists on the remote, not pushing the integration.", branch);
+            LOGGER.log(Level.SEVERE, msg);
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + msg);
+            throw new CommitFailedException(msg);
+        }
+        String msg = String.format("Integration branch %s has moved from %s to %s since the integration was built. Integrating again", branch, base.commit.getName(), head.getName());
+        LOGGER.log(Level.WARNING, msg);
+        listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + msg);
+        try {
+            integrateAgain(build, launcher, listener, branch);
+        } catch (CommitFailedException ex) {
+            LOGGER.log(Level.SEVERE, ex.getMessage());
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + ex.getMessage());
+            throw ex;
+        } catch (InterruptedException | GitException ex) {
+            throw new CommitFailedException(String.format("Failed to integrate again on the moved integration branch, message was:%n%s", ex.getMessage()));
+        }
+    }
+
+    /**
+     * Finds the URL of the integration repository, so builds of different jobs agree on the name of the repository.
+     * @param build The Build
+     * @param listener The BuildListener
+     * @param repository The name of the integration repository
+     * @return the first URL of the repository, or its name if it isn't configured in the Git SCM
+     * @throws IOException when the Git SCM can't be found
+     * @throws InterruptedException
+     */
+    private String findRemoteUrl(AbstractBuild<?, ?> build, BuildListener listener, String repository) throws IOException, InterruptedException {
+        RemoteConfig remote = findScm(build, listener).getRepositoryByName(repository);
+        if (remote == null || remote.getURIs().isEmpty()) {
+            return repository;
+        }
+        return remote.getURIs().get(0).toString();
+    }
+
+    /**
+     * {@inheritDoc }
+     * The integration commit is pushed to a ref of its own on the integration repository,
+     * under {@link #SHARED_INTEGRATION_REFS}, so builds on any node can fetch it.
+     */
+    @Override
+    public boolean shareIntegration(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws IOException, InterruptedException {
+        String expandedRepo = getExpandedRepository(getEnvironment(build, listener));
+        GitClient client = findGitClient(build, listener);
+        try {
+            ObjectId commit = client.revParse(Constants.HEAD);
+            String ref = SHARED_INTEGRATION_REFS + commit.getName();
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + String.format("Sharing integration commit %s as %s", commit.getName(), ref));
+            client.push(expandedRepo, commit.getName() + ":" + ref);
+            IntegrationContext.of(build).put(SharedIntegration.class, new SharedIntegration(commit, ref));
+            return true;
+        } catch (GitException ex) {
+            LOGGER.log(Level.WARNING, "Failed to share the integration commit", ex);
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + String.format("Failed to share the integration commit: %s", ex.getMessage()));
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     * Deletes the ref the integration commit was shared as.
+     */
+    @Override
+    public void unshareIntegration(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws IOException, InterruptedException {
+        SharedIntegration shared = IntegrationContext.of(build).get(SharedIntegration.class);
+        if (shared == null) {
+            return;
+        }
+        IntegrationContext.of(build).remove(SharedIntegration.class);
+        try {
+            findGitClient(build, listener).push(getExpandedRepository(getEnvironment(build, listener)), ":" + shared.ref);
+        } catch (GitException ex) {
+            LOGGER.log(Level.WARNING, "Failed to delete the shared integration commit", ex);
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + String.format("Failed to delete %s: %s", shared.ref, ex.getMessage()));
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     * The integration commit is fetched from the ref it was shared as on the integration repository.
+     */
+    @Override
+    public boolean reuseIntegration(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener, AbstractBuild<?, ?> integrationBuild) throws IOException, InterruptedException {
+        SharedIntegration shared = IntegrationContext.of(integrationBuild).get(SharedIntegration.class);
+        if (shared == null) {
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + String.format("%s didn't share its integration.", integrationBuild.getFullDisplayName()));
+            return false;
+        }
+        try {
+            GitClient client = findGitClient(build, listener);
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + String.format("Reusing integration commit %s of %s", shared.commit.getName(), integrationBuild.getFullDisplayName()));
+            client.fetch(getExpandedRepository(getEnvironment(build, listener)), new RefSpec("+" + shared.ref + ":" + shared.ref));
+            client.checkout().ref(shared.commit.getName()).execute();
+            return true;
+        } catch (GitException ex) {
+            LOGGER.log(Level.WARNING, "Failed to reuse the integration commit", ex);
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + String.format("Failed to reuse the integration commit: %s", ex.getMessage()));
+            return false;
+        }
+    }
+
     /**
      * Returns the workspace
      * @param build The Build
@@ -377,7 +992,7 @@ public class GitBridge extends AbstractSCMBridge {
         RelativeTargetDirectory dir = scm.getExtensions().get(RelativeTargetDirectory.class);
 
         if (dir != null) {
-            workspace = dir.getWorkingDirectory(scm, build.getProject(), workspace, build.getEnvironment(listener), listener);
+            workspace = dir.getWorkingDirectory(scm, build.getProject(), workspace, getEnvironment(build, listener), listener);
         }
 
         LOGGER.log(Level.FINE, "Resolved workspace to {0}", workspace);
@@ -436,13 +1051,45 @@ public class GitBridge extends AbstractSCMBridge {
      * @return the amount of commits
      * @throws IOException
      * @throws InterruptedException
+     * @deprecated Use analyzeBranch, which caches the analysis for the rest of the build.
      */
+    @Deprecated
     public int countCommits(AbstractBuild<?, ?> build, BuildListener listener) throws IOException, InterruptedException {
-        ObjectId commitId = findRelevantBuildData(build, listener).lastBuild.revision.getSha1();
-        GitClient client = findScm(build, listener).createClient(listener, build.getEnvironment(listener), build, build.getWorkspace());
-        GetCommitCountFromBranchCallback commitCountCallback = new GetCommitCountFromBranchCallback(listener, commitId, getExpandedBranch(build.getEnvironment(listener)));
-        int commitCount = client.withRepository(commitCountCallback);
-        return commitCount;
+        return analyzeBranch(build, listener, false, 0).getCommitCount();
+    }
+
+    /**
+     * Analyses the commits in the relevant BuildData that aren't on the integration branch.
+     * The analysis is a single walk in a single round-trip, and is cached in the build's IntegrationContext.
+     * The ready branch is looked up among the remote branches in the same round-trip.
+     * It's only redone when the cached analysis doesn't satisfy the request.
+     * @param build The Build
+     * @param listener The Listener
+     * @param withCommitLog Whether or not the formatted commit log is needed
+     * @param commitLimit The commit count at which the walk may stop. 0 means the exact count is needed.
+     * Ignored when the commit log is needed.
+     * @return the BranchAnalysis of the relevant branch
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public BranchAnalysis analyzeBranch(AbstractBuild<?, ?> build, TaskListener listener, boolean withCommitLog, int commitLimit) throws IOException, InterruptedException {
+        IntegrationContext context = IntegrationContext.of(build);
+        BranchAnalysis analysis = context.get(BranchAnalysis.class);
+        if (analysis == null || !analysis.satisfies(withCommitLog, commitLimit)) {
+            Revision revision = findRelevantBuildData(build, listener).lastBuild.revision;
+            String expandedBranch = getExpandedBranch(getEnvironment(build, listener));
+            String readyBranch = revision.getBranches().isEmpty() ? null : revision.getBranches().iterator().next().getName();
+            BranchAnalysisCallback callback = new BranchAnalysisCallback(listener, revision.getSha1(), expandedBranch, withCommitLog, commitLimit, readyBranch);
+            long start = System.nanoTime();
+            analysis = context.put(BranchAnalysis.class, findGitClient(build, listener).withRepository(callback));
+            IntegrationTimingAction.record(build, IntegrationTimingAction.COUNT, start);
+            PersonIdent tipAuthor = RawParseUtils.parsePersonIdent(analysis.getTipAuthor());
+            if (tipAuthor != null) {
+                IntegrationTimingAction.of(build).setReadySince(tipAuthor.getWhen().getTime());
+            }
+            LOGGER.log(Level.FINE, "Analysed branch: {0} commit(s)", analysis.getCommitCount());
+        }
+        return analysis;
     }
 
     /**
@@ -460,7 +1107,7 @@ public class GitBridge extends AbstractSCMBridge {
         String integrationBranch;
         EnvVars environment;
         try {
-            environment = build.getEnvironment(listener);
+            environment = getEnvironment(build, listener);
             integrationBranch = getExpandedBranch(environment);
         } catch (InterruptedException ex) {
             integrationBranch = getBranch();
@@ -479,10 +1126,11 @@ public class GitBridge extends AbstractSCMBridge {
         }
 
         Result result = build.getResult();
+        if (result != null) {
+            recordOutcome(build, listener, result.isBetterOrEqualTo(getRequiredResult()));
+        }
         if (result != null && result.isBetterOrEqualTo(getRequiredResult())) {
-            commit(build, launcher, listener);
-            deleteIntegratedBranch(build, launcher, listener);
-
+            publish(build, launcher, listener);
         } else {
             LOGGER.log(Level.WARNING, "Build result not satisfied - skipped post-build step.");
             listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Build result not satisfied - skipped post-build step.");
@@ -534,6 +1182,36 @@ public class GitBridge extends AbstractSCMBridge {
         this.repoName = repositoryName;
     }
 
+    /**
+     * @return whether the integration branch is pushed and the development branch deleted in a single atomic push
+     */
+    public boolean isAtomicPush() {
+        return atomicPush;
+    }
+
+    /**
+     * @param atomicPush whether to push the integration branch and delete the development branch in a single atomic push
+     */
+    @DataBoundSetter
+    public void setAtomicPush(boolean atomicPush) {
+        this.atomicPush = atomicPush;
+    }
+
+    /**
+     * @return how many times a rejected push of the integration branch is retried, 0 means never
+     */
+    public int getPushRetries() {
+        return pushRetries;
+    }
+
+    /**
+     * @param pushRetries how many times a rejected push of the integration branch is retried, 0 means never
+     */
+    @DataBoundSetter
+    public void setPushRetries(int pushRetries) {
+        this.pushRetries = Math.max(0, pushRetries);
+    }
+
     /**
      * @return the repository name expanded using given environment variables.
      */
@@ -541,6 +1219,76 @@ public class GitBridge extends AbstractSCMBridge {
         return environment.expand(getRepoName());
     }
 
+    /**
+     * The commit of the remote integration branch the integration of a build was made on.
+     */
+    private static final class IntegrationBase {
+
+        private final ObjectId commit;
+
+        private IntegrationBase(ObjectId commit) {
+            this.commit = commit;
+        }
+    }
+
+    /**
+     * The integration commit of a build, shared for other builds as a ref of the integration repository.
+     */
+    private static final class SharedIntegration {
+
+        private final ObjectId commit;
+        private final String ref;
+
+        private SharedIntegration(ObjectId commit, String ref) {
+            this.commit = commit;
+            this.ref = ref;
+        }
+    }
+
+    /**
+     * The push retries of a build, from the first time the changes were integrated again.
+     */
+    private static final class PushRetries {
+
+        private final ObjectId builtTree;
+        private final long start = System.currentTimeMillis();
+        private int count;
+
+        private PushRetries(ObjectId builtTree) {
+            this.builtTree = builtTree;
+        }
+    }
+
+    /**
+     * The IntegrationResultCache key of the integration done by a build.
+     */
+    private static final class IntegrationKey {
+
+        private final String repository;
+        private final ObjectId integrationHead;
+        private final String tip;
+        private final String strategy;
+
+        private IntegrationKey(String repository, ObjectId integrationHead, String tip, String strategy) {
+            this.repository = repository;
+            this.integrationHead = integrationHead;
+            this.tip = tip;
+            this.strategy = strategy;
+        }
+
+        /**
+         * @param head The integration branch head the changes are actually merged on
+         * @return the key of the same integration on that head
+         */
+        private IntegrationKey on(ObjectId head) {
+            return head.equals(integrationHead) ? this : new IntegrationKey(repository, head, tip, strategy);
+        }
+
+        private String value() {
+            return IntegrationResultCache.key(repository, integrationHead.getName(), tip, strategy);
+        }
+    }
+
     /**
      * Descriptor implementation for GitBridge
      */
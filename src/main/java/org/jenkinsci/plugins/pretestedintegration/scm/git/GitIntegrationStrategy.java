@@ -1,5 +1,6 @@
 package org.jenkinsci.plugins.pretestedintegration.scm.git;
 
+import hudson.EnvVars;
 import hudson.Launcher;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
@@ -14,7 +15,9 @@ import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.jenkinsci.plugins.gitclient.GitClient;
 import org.jenkinsci.plugins.gitclient.MergeCommand;
+import org.jenkinsci.plugins.pretestedintegration.IntegrationContext;
 import org.jenkinsci.plugins.pretestedintegration.IntegrationStrategy;
+import org.jenkinsci.plugins.pretestedintegration.IntegrationTimingAction;
 import org.jenkinsci.plugins.pretestedintegration.PretestedIntegrationBuildWrapper;
 import org.jenkinsci.plugins.pretestedintegration.exceptions.IntegrationFailedException;
 
@@ -25,6 +28,12 @@ public abstract class GitIntegrationStrategy extends IntegrationStrategy {
 
     private static final Logger LOGGER = Logger.getLogger(GitIntegrationStrategy.class.getName());
 
+    /**
+     * Commit count at which counting can stop.
+     * Fast-forward and rebase only need to tell a single commit from several.
+     */
+    protected static final int SINGLE_COMMIT_LIMIT = 2;
+
     /**
      * Creates a PersonIdent object from a full Git identity string.
      * @param identity The Git identity string to parse. ex.: john Doe <Joh@praqma.net> 1442321765 +0200
@@ -37,6 +46,16 @@ public abstract class GitIntegrationStrategy extends IntegrationStrategy {
         return new PersonIdent(match.group(1), match.group(2));
     }
 
+    /**
+     * Whether or not the strategy needs the formatted commit log of the ready branch.
+     * The branch is analysed once per build, so strategies that need the log should
+     * say so up front rather than having the branch walked twice.
+     * @return true if the commit log is needed
+     */
+    protected boolean needsCommitLog() {
+        return false;
+    }
+
     /**
      * Attempts to rebase the ready branch onto the integration branch.
      * Only when the ready branch consists of a single commit.
@@ -50,12 +69,21 @@ public abstract class GitIntegrationStrategy extends IntegrationStrategy {
      * @throws IntegrationFailedException When commit counting or rebasing fails
      */
     protected boolean tryRebase(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener, GitBridge bridge) throws IntegrationFailedException {
+        long start = System.nanoTime();
+        try {
+            return tryRebaseImpl(build, launcher, listener, bridge);
+        } finally {
+            IntegrationTimingAction.record(build, IntegrationTimingAction.REBASE, start);
+        }
+    }
+
+    private boolean tryRebaseImpl(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener, GitBridge bridge) throws IntegrationFailedException {
         LOGGER.log(Level.INFO, String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Entering tryRebase"));
 
         //Get the commit count
         int commitCount;
         try {
-            commitCount = bridge.countCommits(build, listener);
+            commitCount = bridge.analyzeBranch(build, listener, needsCommitLog(), SINGLE_COMMIT_LIMIT).getCommitCount();
             LOGGER.log(Level.INFO, String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Branch commit count: " + commitCount));
         } catch (IOException | InterruptedException ex) {
             throw new IntegrationFailedException("Failed to count commits.", ex);
@@ -70,9 +98,9 @@ public abstract class GitIntegrationStrategy extends IntegrationStrategy {
         //Rebase the commit
         try {
             LOGGER.log(Level.INFO, String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Attempting rebase."));
-            GitClient client = bridge.findScm(build, listener).createClient(listener, build.getEnvironment(listener), build, build.getWorkspace());
+            GitClient client = bridge.findGitClient(build, listener);
             ObjectId commitId = bridge.findRelevantBuildData(build, listener).lastBuild.revision.getSha1();
-            String expandedBranch = bridge.getExpandedBranch(build.getEnvironment(listener));
+            String expandedBranch = bridge.getExpandedBranch(bridge.getEnvironment(build, listener));
 
             //Rebase the commit, then checkout master for a fast-forward merge.
             client.checkout().ref(commitId.getName()).execute();
@@ -100,13 +128,22 @@ public abstract class GitIntegrationStrategy extends IntegrationStrategy {
      * suitable for a FF merge.
      * @throws IntegrationFailedException When commit counting fails
      */
-    protected boolean tryFastForward(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener, GitBridge bridge) throws IntegrationFailedException{
+    protected boolean tryFastForward(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener, GitBridge bridge) throws IntegrationFailedException {
+        long start = System.nanoTime();
+        try {
+            return tryFastForwardImpl(build, launcher, listener, bridge);
+        } finally {
+            IntegrationTimingAction.record(build, IntegrationTimingAction.FAST_FORWARD, start);
+        }
+    }
+
+    private boolean tryFastForwardImpl(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener, GitBridge bridge) throws IntegrationFailedException {
         LOGGER.log(Level.INFO, String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Entering tryFastForward"));
 
         //Get the commit count
         int commitCount;
         try {
-            commitCount = bridge.countCommits(build, listener);
+            commitCount = bridge.analyzeBranch(build, listener, needsCommitLog(), SINGLE_COMMIT_LIMIT).getCommitCount();
             LOGGER.log(Level.INFO, String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Branch commit count: " + commitCount));
         } catch (IOException | InterruptedException ex) {
             throw new IntegrationFailedException("Failed to count commits.", ex);
@@ -121,7 +158,7 @@ public abstract class GitIntegrationStrategy extends IntegrationStrategy {
         //FF merge the commit
         try {
             LOGGER.log(Level.INFO, String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Attempting rebase."));
-            GitClient client = bridge.findScm(build, listener).createClient(listener, build.getEnvironment(listener), build, build.getWorkspace());
+            GitClient client = bridge.findGitClient(build, listener);
             ObjectId commitId = bridge.findRelevantBuildData(build, listener).lastBuild.revision.getSha1();
             client.merge().setGitPluginFastForwardMode(MergeCommand.GitPluginFastForwardMode.FF_ONLY).setRevisionToMerge(commitId).execute();
             listener.getLogger().println(String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "FF merge successful."));
@@ -134,27 +171,92 @@ public abstract class GitIntegrationStrategy extends IntegrationStrategy {
         }
     }
 
+    /**
+     * Merges the ready branch into the integration branch in memory, without touching the worktree,
+     * then moves the integration branch and the worktree to the resulting commit in one fast-forward.
+     * The in-memory merge doesn't detect renames, so when it reports conflicts
+     * the caller should merge in the workspace instead.
+     *
+     * @param build The Build
+     * @param listener The BuildListener
+     * @param bridge The GitBridge
+     * @param tip The commit Id of the ready branch tip
+     * @param squash Whether to squash the ready branch into a single commit, or to create a merge commit
+     * @param messageHeader The first part of the commit message
+     * @param commitLogFile The name of the file in the Git directory holding the commit log, or null to collect it while merging
+     * @param author The author of the commit
+     * @return true if the changes were integrated, false if the in-memory merge had conflicts
+     * @throws IntegrationFailedException when there is nothing to integrate, or the merge failed unexpectedly
+     */
+    protected boolean tryInMemoryMerge(AbstractBuild<?, ?> build, BuildListener listener, GitBridge bridge, ObjectId tip, boolean squash, String messageHeader, String commitLogFile, PersonIdent author) throws IntegrationFailedException {
+        InMemoryMergeResult result;
+        GitClient client;
+        try {
+            client = bridge.findGitClient(build, listener);
+            EnvVars environment = bridge.getEnvironment(build, listener);
+            PersonIdent committer = null;
+            if (environment.containsKey("GIT_COMMITTER_NAME") && environment.containsKey("GIT_COMMITTER_EMAIL")) {
+                committer = new PersonIdent(environment.get("GIT_COMMITTER_NAME"), environment.get("GIT_COMMITTER_EMAIL"));
+            }
+            listener.getLogger().println(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Merging in memory:");
+            long start = System.nanoTime();
+            result = client.withRepository(new InMemoryMergeCallback(listener, tip, squash, messageHeader, commitLogFile, author, committer));
+            IntegrationTimingAction.record(build, IntegrationTimingAction.COMMIT, start);
+        } catch (GitException | IOException | InterruptedException ex) {
+            String logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Exception while merging. Logging exception msg: %s", ex.getMessage());
+            LOGGER.log(Level.SEVERE, logMessage, ex);
+            listener.getLogger().println(logMessage);
+            throw new IntegrationFailedException(ex);
+        }
+
+        if (result.getStatus() == InMemoryMergeResult.Status.CONFLICTING) {
+            String logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "In-memory merge has conflicts in %s. Merging in the workspace instead.", result.getConflictingPaths());
+            LOGGER.log(Level.INFO, logMessage);
+            listener.getLogger().println(logMessage);
+            return false;
+        }
+        if (result.getStatus() == InMemoryMergeResult.Status.UNCHANGED) {
+            String logMessage = String.format("%sUnable to commit changes. Most likely you are trying to integrate a change that was already integrated. Message was:%nThe merge result has no changes.", PretestedIntegrationBuildWrapper.LOG_PREFIX);
+            LOGGER.log(Level.SEVERE, logMessage);
+            listener.getLogger().println(logMessage);
+            throw new IntegrationFailedException(logMessage);
+        }
+
+        try {
+            // The new commit is a child of the integration branch head, so this is the only worktree update
+            client.merge().setGitPluginFastForwardMode(MergeCommand.GitPluginFastForwardMode.FF_ONLY).setRevisionToMerge(result.getCommitId()).execute();
+        } catch (GitException | InterruptedException ex) {
+            String logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Exception while updating the workspace. Logging exception msg: %s", ex.getMessage());
+            LOGGER.log(Level.SEVERE, logMessage, ex);
+            listener.getLogger().println(logMessage);
+            throw new IntegrationFailedException(ex);
+        }
+        listener.getLogger().println(String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "In-memory merge committed as %s", result.getCommitId().getName()));
+        return true;
+    }
+
     /**
      * Checks whether or not we can find the given remote branch.
-     * @param client the Git Client
+     * Answered from the branch analysis of the build when it looked up the same branch,
+     * otherwise looks up the remote-tracking ref directly, so the cost doesn't grow with the number of remote branches.
+     * @param build The Build
+     * @param bridge The GitBridge
      * @param branch the branch to look for
+     * @param listener The BuildListener
      * @return True if the branch was found, otherwise False.
      * @throws IntegrationFailedException when the Git call failed unexpectedly
      */
-    protected boolean containsRemoteBranch(GitClient client, Branch branch) throws IntegrationFailedException {
+    protected boolean containsRemoteBranch(AbstractBuild<?, ?> build, GitBridge bridge, Branch branch, BuildListener listener) throws IntegrationFailedException {
+        BranchAnalysis analysis = IntegrationContext.of(build).get(BranchAnalysis.class);
+        if (analysis != null && branch.getName().equals(analysis.getReadyBranch())) {
+            return analysis.isReadyBranchFound();
+        }
         try {
-            LOGGER.fine("Resolving and getting Git client from workspace:");
-            LOGGER.fine("Remote branches:");
-            for (Branch remoteBranch : client.getRemoteBranches()) {
-                LOGGER.fine(String.format("Found remote branch %s", remoteBranch.getName()));
-                if (remoteBranch.getName().equals(branch.getName())) {
-                    return true;
-                }
-            }
-        } catch (GitException | InterruptedException ex) {
+            LOGGER.fine(String.format("Looking up remote branch %s", branch.getName()));
+            return bridge.findGitClient(build, listener).withRepository(new FindRemoteBranchCallback(listener, branch.getName()));
+        } catch (GitException | IOException | InterruptedException ex) {
             LOGGER.log(Level.SEVERE, "GitClient error", ex);
             throw new IntegrationFailedException("GitClient error, unspecified", ex);
         }
-        return false;
     }
 }
@@ -0,0 +1,195 @@
+package org.jenkinsci.plugins.pretestedintegration.scm.git;
+
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.merge.ResolveMerger;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Callback that merges a ready branch into the checked out integration branch without touching the worktree.
+ * The merge is computed from the trees by JGit, and the resulting commit is written directly to the object database.
+ * Neither HEAD nor the worktree are changed; the caller moves them to the new commit afterwards.
+ */
+public class InMemoryMergeCallback extends RepositoryListenerAwareCallback<InMemoryMergeResult> {
+
+    /**
+     * The commit Id of the ready branch tip.
+     */
+    public final ObjectId id;
+
+    /**
+     * Whether to squash the ready branch into a single commit, or to create a merge commit.
+     */
+    public final boolean squash;
+
+    /**
+     * The first part of the commit message.
+     */
+    public final String messageHeader;
+
+    /**
+     * The name of the file in the Git directory holding the commit log for the message.
+     * If null, the commit log is collected while merging.
+     */
+    public final String commitLogFile;
+
+    /**
+     * The author of the commit.
+     */
+    public final PersonIdent author;
+
+    /**
+     * The committer of the commit. If null, the committer is taken from the repository configuration.
+     */
+    public final PersonIdent committer;
+
+    /**
+     * The maximum number of characters in a commit log collected while merging.
+     */
+    public final long maxCommitLogLength;
+
+    /**
+     * Constructor for InMemoryMergeCallback
+     * @param listener The TaskListener
+     * @param id The commit Id of the ready branch tip
+     * @param squash Whether to squash the ready branch into a single commit, or to create a merge commit
+     * @param messageHeader The first part of the commit message
+     * @param commitLogFile The name of the file in the Git directory holding the commit log, or null to collect it while merging
+     * @param author The author of the commit
+     * @param committer The committer of the commit, or null to use the repository configuration
+     */
+    public InMemoryMergeCallback(TaskListener listener, final ObjectId id, boolean squash, String messageHeader, String commitLogFile, PersonIdent author, PersonIdent committer) {
+        super(listener);
+        this.id = id;
+        this.squash = squash;
+        this.messageHeader = messageHeader;
+        this.commitLogFile = commitLogFile;
+        this.author = author;
+        this.committer = committer;
+        this.maxCommitLogLength = BranchAnalysisCallback.MAX_COMMIT_LOG_LENGTH;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InMemoryMergeResult invoke(Repository repo, VirtualChannel channel) throws IOException, InterruptedException {
+        RevWalk walk = new RevWalk(repo);
+        ObjectInserter inserter = repo.newObjectInserter();
+        try {
+            RevCommit head = walk.parseCommit(repo.resolve(Constants.HEAD));
+            RevCommit tip = walk.parseCommit(id);
+
+            // The recursive merger is a ResolveMerger that also copes with several merge bases
+            ResolveMerger merger = (ResolveMerger) MergeStrategy.RECURSIVE.newMerger(repo, true);
+            if (!merger.merge(head, tip)) {
+                List<String> conflictingPaths = new ArrayList<>(merger.getUnmergedPaths());
+                if (merger.getFailingPaths() != null) {
+                    conflictingPaths.addAll(merger.getFailingPaths().keySet());
+                }
+                return new InMemoryMergeResult(InMemoryMergeResult.Status.CONFLICTING, null, conflictingPaths);
+            }
+            ObjectId tree = merger.getResultTreeId();
+            // Like Git, a squash without changes has nothing to commit, while a merge only needs the tip to be new
+            boolean unchanged = squash ? tree.equals(head.getTree()) : walk.isMergedInto(tip, head);
+            if (unchanged) {
+                return new InMemoryMergeResult(InMemoryMergeResult.Status.UNCHANGED, null, Collections.<String>emptyList());
+            }
+
+            CommitBuilder commit = new CommitBuilder();
+            commit.setTreeId(tree);
+            if (squash) {
+                commit.setParentId(head);
+            } else {
+                commit.setParentIds(head, tip);
+            }
+            commit.setAuthor(author);
+            commit.setCommitter(committer == null ? new PersonIdent(repo) : committer);
+            commit.setMessage(buildMessage(repo, walk, head, tip));
+            ObjectId commitId = inserter.insert(commit);
+            inserter.flush();
+            return new InMemoryMergeResult(InMemoryMergeResult.Status.COMMITTED, commitId, Collections.<String>emptyList());
+        } finally {
+            inserter.release();
+            walk.dispose();
+        }
+    }
+
+    /**
+     * Builds the commit message from the header and the commit log.
+     * Squash messages list the commits as Git does in SQUASH_MSG.
+     * The message is cleaned up like 'git commit' does with a message from a file,
+     * as the command line strategies do with the same message.
+     * @param repo The repository
+     * @param walk The RevWalk used for the merge
+     * @param head The integration branch head
+     * @param tip The ready branch tip
+     * @return the commit message
+     * @throws IOException
+     */
+    private String buildMessage(Repository repo, RevWalk walk, RevCommit head, RevCommit tip) throws IOException {
+        StringBuilder message = new StringBuilder(messageHeader);
+        if (commitLogFile != null) {
+            message.append(FileUtils.readFileToString(new File(repo.getDirectory(), commitLogFile), "UTF-8"));
+        } else {
+            walk.reset();
+            walk.markStart(tip);
+            walk.markUninteresting(head);
+            CommitLogWriter.Format format = squash ? CommitLogWriter.Format.SQUASH : CommitLogWriter.Format.ACCUMULATED;
+            CommitLogWriter writer = new CommitLogWriter(message, format, maxCommitLogLength, false);
+            for (RevCommit rev : walk) {
+                writer.write(rev);
+            }
+            writer.finish();
+        }
+        return cleanUp(message);
+    }
+
+    /**
+     * Cleans up a commit message like 'git commit --cleanup=whitespace', the default for messages from a file.
+     * Trailing whitespace is dropped, consecutive blank lines are collapsed into one,
+     * and leading and trailing blank lines are removed.
+     * @param message The message
+     * @return the cleaned up message, ending with a newline
+     */
+    static String cleanUp(CharSequence message) {
+        StringBuilder cleaned = new StringBuilder(message.length());
+        boolean blank = false;
+        int start = 0;
+        while (start < message.length()) {
+            int next = start;
+            while (next < message.length() && message.charAt(next) != '\n') {
+                next++;
+            }
+            int end = next;
+            while (end > start && Character.isWhitespace(message.charAt(end - 1))) {
+                end--;
+            }
+            if (end == start) {
+                blank = cleaned.length() > 0;
+            } else {
+                if (blank) {
+                    cleaned.append('\n');
+                    blank = false;
+                }
+                cleaned.append(message, start, end).append('\n');
+            }
+            start = next + 1;
+        }
+        return cleaned.toString();
+    }
+}
@@ -0,0 +1,70 @@
+package org.jenkinsci.plugins.pretestedintegration.scm.git;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Outcome of an in-memory merge, as returned by the InMemoryMergeCallback.
+ */
+public final class InMemoryMergeResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The possible outcomes of an in-memory merge.
+     */
+    public enum Status {
+        /**
+         * The merge commit was created.
+         */
+        COMMITTED,
+        /**
+         * The merge result is identical to the integration branch, so there is nothing to commit.
+         */
+        UNCHANGED,
+        /**
+         * The merge has conflicts, nothing was created.
+         */
+        CONFLICTING
+    }
+
+    private final Status status;
+    private final ObjectId commitId;
+    private final List<String> conflictingPaths;
+
+    /**
+     * Constructor for InMemoryMergeResult
+     * @param status The outcome of the merge
+     * @param commitId The created commit, or null if none was created
+     * @param conflictingPaths The paths that couldn't be merged
+     */
+    public InMemoryMergeResult(Status status, ObjectId commitId, List<String> conflictingPaths) {
+        this.status = status;
+        this.commitId = commitId == null ? null : commitId.copy();
+        this.conflictingPaths = Collections.unmodifiableList(new ArrayList<>(conflictingPaths));
+    }
+
+    /**
+     * @return the outcome of the merge
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the created commit, or null if none was created
+     */
+    public ObjectId getCommitId() {
+        return commitId;
+    }
+
+    /**
+     * @return the paths that couldn't be merged
+     */
+    public List<String> getConflictingPaths() {
+        return conflictingPaths;
+    }
+}
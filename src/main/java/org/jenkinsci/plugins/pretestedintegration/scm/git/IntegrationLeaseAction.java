@@ -0,0 +1,36 @@
+package org.jenkinsci.plugins.pretestedintegration.scm.git;
+
+import hudson.model.InvisibleAction;
+
+/**
+ * Records how long a build waited for, and held, the lease on the integration branch while publishing.
+ */
+public class IntegrationLeaseAction extends InvisibleAction {
+
+    private final long waitMillis;
+    private final long holdMillis;
+
+    /**
+     * Constructor for IntegrationLeaseAction
+     * @param waitMillis The time spent waiting for the lease, in milliseconds
+     * @param holdMillis The time the lease was held, in milliseconds
+     */
+    public IntegrationLeaseAction(long waitMillis, long holdMillis) {
+        this.waitMillis = waitMillis;
+        this.holdMillis = holdMillis;
+    }
+
+    /**
+     * @return the time spent waiting for the lease, in milliseconds
+     */
+    public long getWaitMillis() {
+        return waitMillis;
+    }
+
+    /**
+     * @return the time the lease was held, in milliseconds
+     */
+    public long getHoldMillis() {
+        return holdMillis;
+    }
+}
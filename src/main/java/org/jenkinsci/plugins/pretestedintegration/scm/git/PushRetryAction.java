@@ -0,0 +1,38 @@
+package org.jenkinsci.plugins.pretestedintegration.scm.git;
+
+import hudson.model.InvisibleAction;
+
+/**
+ * Records how often the push of the integration branch was retried,
+ * after being rejected because the integration branch had moved.
+ * Only added to builds that needed at least one retry.
+ */
+public class PushRetryAction extends InvisibleAction {
+
+    private final int retries;
+    private final long retryMillis;
+
+    /**
+     * Constructor for PushRetryAction
+     * @param retries The number of retried pushes
+     * @param retryMillis The time spent on retrying, in milliseconds
+     */
+    public PushRetryAction(int retries, long retryMillis) {
+        this.retries = retries;
+        this.retryMillis = retryMillis;
+    }
+
+    /**
+     * @return the number of retried pushes
+     */
+    public int getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return the time spent on retrying, in milliseconds
+     */
+    public long getRetryMillis() {
+        return retryMillis;
+    }
+}
@@ -52,7 +52,7 @@ public class SquashCommitStrategy extends GitIntegrationStrategy {
 
         GitClient client;
         try {
-            client = gitbridge.findScm(build, listener).createClient(listener, build.getEnvironment(listener), build, build.getWorkspace());
+            client = gitbridge.findGitClient(build, listener);
         } catch (InterruptedException | IOException ex) {
             LOGGER.log(Level.SEVERE, "Failed to initialize GitClient", ex);
             throw new IntegrationFailedException(ex);
@@ -60,7 +60,7 @@ public class SquashCommitStrategy extends GitIntegrationStrategy {
 
         String expandedBranchName;
         try {
-            expandedBranchName = gitbridge.getExpandedBranch(build.getEnvironment(listener));
+            expandedBranchName = gitbridge.getExpandedBranch(gitbridge.getEnvironment(build, listener));
         } catch (IOException | InterruptedException ex) {
             expandedBranchName = gitbridge.getBranch();
         }
@@ -72,7 +72,7 @@ public class SquashCommitStrategy extends GitIntegrationStrategy {
         String logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Preparing to merge changes in commit %s on development branch %s to integration branch %s", builtBranch.getSHA1String(), builtBranch.getName(), expandedBranchName);
         LOGGER.log(Level.INFO, logMessage);
         listener.getLogger().println(logMessage);
-        if (!containsRemoteBranch(client, builtBranch)) {
+        if (!containsRemoteBranch(build, gitbridge, builtBranch, listener)) {
             LOGGER.fine("Found no remote branches.");
             try {
                 LOGGER.fine("Setting build description 'Nothing to do':");
@@ -92,20 +92,40 @@ public class SquashCommitStrategy extends GitIntegrationStrategy {
             logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Collecting author of last commit on development branch");
             LOGGER.log(Level.INFO, logMessage);
             listener.getLogger().println(logMessage);
-            commitAuthor = client.withRepository(new FindCommitAuthorCallback(listener, builtBranch.getSHA1()));
+            commitAuthor = gitbridge.analyzeBranch(build, listener, needsCommitLog(), SINGLE_COMMIT_LIMIT).getTipAuthor();
             logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Done colecting last commit author: %s", commitAuthor);
             LOGGER.log(Level.INFO, logMessage);
             listener.getLogger().println(logMessage);
+        } catch (IOException | InterruptedException | GitException ex) {
+            logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Exception while merging. Logging exception msg: %s", ex.getMessage());
+            LOGGER.log(Level.SEVERE, logMessage, ex);
+            listener.getLogger().println(logMessage);
+            throw new IntegrationFailedException(ex);
+        }
 
+        listener.getLogger().println(String.format("%s merge --squash %s", PretestedIntegrationBuildWrapper.LOG_PREFIX, builtBranch.getName())); // Output asserted in tests.
+        // The message matches the one Git writes to .git/SQUASH_MSG
+        if (tryInMemoryMerge(build, listener, gitbridge, builtBranch.getSHA1(), true, String.format("Squashed commit of the following:%n%n"), null, getPersonIdent(commitAuthor))) {
+            logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Commit was successful");
+            LOGGER.log(Level.INFO, logMessage);
+            listener.getLogger().println(logMessage);
+            return;
+        }
+
+        // Timed as the in-memory merge is, merge and commit together
+        long start = System.nanoTime();
+        try {
             logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Starting squash merge - without commit:");
             LOGGER.info(logMessage);
             listener.getLogger().println(logMessage);
-            listener.getLogger().println(String.format("%s merge --squash %s", PretestedIntegrationBuildWrapper.LOG_PREFIX, builtBranch.getName())); // Output asserted in tests.
             client.merge().setSquash(true).setRevisionToMerge(builtBranch.getSHA1()).execute();
             logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Squash merge done");
             LOGGER.info(logMessage);
             listener.getLogger().println(logMessage);
-        } catch (IOException | InterruptedException | GitException ex) {
+        } catch (InterruptedException | GitException ex) {
+            if (ex instanceof GitException) {
+                gitbridge.recordMergeFailure(build, listener, (GitException) ex);
+            }
             logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Exception while merging. Logging exception msg: %s", ex.getMessage());
             LOGGER.log(Level.SEVERE, logMessage, ex);
             listener.getLogger().println(logMessage);
@@ -124,6 +144,7 @@ public class SquashCommitStrategy extends GitIntegrationStrategy {
             String message = client.getWorkTree().child(".git/SQUASH_MSG").readToString();
             client.setAuthor(author);
             client.commit(message);
+            IntegrationTimingAction.record(build, IntegrationTimingAction.COMMIT, start);
             logMessage = String.format(PretestedIntegrationBuildWrapper.LOG_PREFIX + "Commit of squashed merge done");
             LOGGER.info(logMessage);
             listener.getLogger().println(logMessage);
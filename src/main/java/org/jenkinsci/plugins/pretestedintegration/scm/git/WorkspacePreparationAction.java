@@ -0,0 +1,58 @@
+package org.jenkinsci.plugins.pretestedintegration.scm.git;
+
+import hudson.model.InvisibleAction;
+import java.io.Serializable;
+
+/**
+ * Records how much work checking out the integration branch took for a build.
+ */
+public class WorkspacePreparationAction extends InvisibleAction implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * How the integration branch was checked out.
+     */
+    public enum Mode {
+        /**
+         * The clean workspace was already on the integration branch head, only the branch was set.
+         */
+        SKIP,
+        /**
+         * Only a few paths differed in the clean workspace, so only those were checked out.
+         */
+        PARTIAL,
+        /**
+         * Many paths differed, the workspace had local changes or couldn't be compared, so Git checked out the branch.
+         */
+        FULL
+    }
+
+    private final Mode mode;
+    private final int differingPaths;
+
+    /**
+     * Constructor for WorkspacePreparationAction
+     * @param mode How the integration branch was checked out
+     * @param differingPaths The number of paths that differed, or -1 if unknown.
+     * For a full checkout, counting stops just above the partial limit.
+     */
+    public WorkspacePreparationAction(Mode mode, int differingPaths) {
+        this.mode = mode;
+        this.differingPaths = differingPaths;
+    }
+
+    /**
+     * @return how the integration branch was checked out
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the number of paths that differed, or -1 if unknown
+     */
+    public int getDifferingPaths() {
+        return differingPaths;
+    }
+}
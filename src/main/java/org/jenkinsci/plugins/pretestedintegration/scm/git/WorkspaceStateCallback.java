@@ -0,0 +1,182 @@
+package org.jenkinsci.plugins.pretestedintegration.scm.git;
+
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.jgit.dircache.DirCacheCheckout;
+import org.eclipse.jgit.errors.CheckoutConflictException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.IndexDiff;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryState;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Callback that puts the workspace on the remote integration branch when that takes little work.
+ * HEAD may be detached, as the Git plugin leaves it, or on any branch: only its commit is compared.
+ * With a clean index and worktree, the local integration branch is set to the remote one and HEAD is attached to it.
+ * When HEAD is already on the remote commit nothing else is done. When only a few paths differ,
+ * just those are checked out. In all other cases the workspace is left untouched and a full checkout is reported.
+ */
+public class WorkspaceStateCallback extends RepositoryListenerAwareCallback<WorkspacePreparationAction> {
+
+    private static final Logger LOGGER = Logger.getLogger(WorkspaceStateCallback.class.getName());
+
+    /**
+     * The name of the local integration branch.
+     */
+    public final String branch;
+
+    /**
+     * The remote integration branch, as a revision Git can resolve.
+     */
+    public final String remoteBranch;
+
+    /**
+     * The number of differing paths up to which only those paths are checked out.
+     */
+    public final int partialLimit;
+
+    /**
+     * Constructor for WorkspaceStateCallback
+     * @param listener The TaskListener
+     * @param branch The name of the local integration branch
+     * @param remoteBranch The remote integration branch
+     * @param partialLimit The number of differing paths up to which only those paths are checked out
+     */
+    public WorkspaceStateCallback(TaskListener listener, final String branch, final String remoteBranch, int partialLimit) {
+        super(listener);
+        this.branch = branch;
+        this.remoteBranch = remoteBranch;
+        this.partialLimit = partialLimit;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return how the workspace was put on the integration branch, FULL if it was left for a full checkout
+     */
+    @Override
+    public WorkspacePreparationAction invoke(Repository repo, VirtualChannel channel) throws IOException, InterruptedException {
+        ObjectId remoteId = repo.resolve(remoteBranch);
+        ObjectId headId = repo.resolve(Constants.HEAD);
+        if (remoteId == null || headId == null || repo.isBare() || repo.getRepositoryState() != RepositoryState.SAFE) {
+            return new WorkspacePreparationAction(WorkspacePreparationAction.Mode.FULL, -1);
+        }
+        // Content filters, such as Git LFS, and attributes are only applied by command line Git
+        if (!repo.getConfig().getSubsections("filter").isEmpty() || new File(repo.getDirectory(), "info/attributes").exists()) {
+            return new WorkspacePreparationAction(WorkspacePreparationAction.Mode.FULL, -1);
+        }
+        if (!isClean(repo, headId)) {
+            return new WorkspacePreparationAction(WorkspacePreparationAction.Mode.FULL, -1);
+        }
+
+        RevWalk walk = new RevWalk(repo);
+        try {
+            RevTree headTree = walk.parseCommit(headId).getTree();
+            RevTree remoteTree = walk.parseCommit(remoteId).getTree();
+            TreeWalk attributes = TreeWalk.forPath(repo, ".gitattributes", remoteTree);
+            if (attributes != null) {
+                attributes.release();
+                return new WorkspacePreparationAction(WorkspacePreparationAction.Mode.FULL, -1);
+            }
+            int differing = countDifferingPaths(repo, headTree, remoteTree);
+            if (differing < 0) {
+                return new WorkspacePreparationAction(WorkspacePreparationAction.Mode.FULL, -1);
+            }
+            if (differing > partialLimit) {
+                return new WorkspacePreparationAction(WorkspacePreparationAction.Mode.FULL, differing);
+            }
+            if (differing > 0) {
+                DirCacheCheckout checkout = new DirCacheCheckout(repo, headTree, repo.lockDirCache(), remoteTree);
+                checkout.setFailOnConflict(true);
+                try {
+                    checkout.checkout();
+                } catch (CheckoutConflictException ex) {
+                    LOGGER.log(Level.FINE, "Paths in the way of the checkout, leaving it to a full checkout", ex);
+                    return new WorkspacePreparationAction(WorkspacePreparationAction.Mode.FULL, differing);
+                }
+            }
+            setBranch(repo, remoteId);
+            WorkspacePreparationAction.Mode mode = differing == 0 ? WorkspacePreparationAction.Mode.SKIP : WorkspacePreparationAction.Mode.PARTIAL;
+            return new WorkspacePreparationAction(mode, differing);
+        } finally {
+            walk.dispose();
+        }
+    }
+
+    /**
+     * Checks for staged and unstaged changes to tracked files. Untracked files don't matter,
+     * a checkout leaves them alone, and is refused if they are in the way.
+     * @param repo The repository
+     * @param headId The commit of HEAD
+     * @return true if the index and the worktree match HEAD
+     * @throws IOException
+     */
+    private static boolean isClean(Repository repo, ObjectId headId) throws IOException {
+        IndexDiff diff = new IndexDiff(repo, headId, new FileTreeIterator(repo));
+        diff.diff();
+        return diff.getAdded().isEmpty() && diff.getChanged().isEmpty() && diff.getRemoved().isEmpty()
+                && diff.getMissing().isEmpty() && diff.getModified().isEmpty() && diff.getConflicting().isEmpty();
+    }
+
+    /**
+     * Counts the paths the checkout has to rewrite, stopping once the checkout is no longer partial.
+     * @param repo The repository
+     * @param headTree The tree of HEAD
+     * @param remoteTree The tree of the remote integration branch
+     * @return the number of differing paths, up to one above the partial limit. -1 if a .gitattributes file differs.
+     * @throws IOException
+     */
+    private int countDifferingPaths(Repository repo, RevTree headTree, RevTree remoteTree) throws IOException {
+        TreeWalk treeWalk = new TreeWalk(repo);
+        try {
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(TreeFilter.ANY_DIFF);
+            treeWalk.addTree(headTree);
+            treeWalk.addTree(remoteTree);
+            int differing = 0;
+            while (differing <= partialLimit && treeWalk.next()) {
+                if (treeWalk.getNameString().equals(".gitattributes")) {
+                    return -1;
+                }
+                differing++;
+            }
+            return differing;
+        } finally {
+            treeWalk.release();
+        }
+    }
+
+    /**
+     * Points the local integration branch at the remote integration branch and attaches HEAD to it,
+     * as checking out the branch would.
+     * @param repo The repository
+     * @param remoteId The commit of the remote integration branch
+     * @throws IOException
+     */
+    private void setBranch(Repository repo, ObjectId remoteId) throws IOException {
+        RefUpdate branchUpdate = repo.updateRef(Constants.R_HEADS + branch);
+        branchUpdate.setNewObjectId(remoteId);
+        branchUpdate.setForceUpdate(true);
+        branchUpdate.setRefLogMessage("pretested integration: reset to " + remoteBranch, false);
+        RefUpdate.Result result = branchUpdate.update();
+        if (result == RefUpdate.Result.LOCK_FAILURE || result == RefUpdate.Result.IO_FAILURE || result == RefUpdate.Result.REJECTED) {
+            throw new IOException(String.format("Failed to update branch %s: %s", branch, result));
+        }
+        RefUpdate headUpdate = repo.updateRef(Constants.HEAD);
+        headUpdate.disableRefLog();
+        result = headUpdate.link(Constants.R_HEADS + branch);
+        if (result == RefUpdate.Result.LOCK_FAILURE || result == RefUpdate.Result.IO_FAILURE) {
+            throw new IOException(String.format("Failed to check out branch %s: %s", branch, result));
+        }
+    }
+}
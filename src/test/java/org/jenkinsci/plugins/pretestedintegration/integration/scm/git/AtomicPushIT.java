@@ -0,0 +1,79 @@
+package org.jenkinsci.plugins.pretestedintegration.integration.scm.git;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jgit.lib.Repository;
+import org.jenkinsci.plugins.pretestedintegration.PretestedIntegrationBuildWrapper;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.GitBridge;
+import static org.jenkinsci.plugins.pretestedintegration.integration.scm.git.TestUtilsFactory.STRATEGY_TYPE;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests integration with the atomic push option enabled.
+ * Requires Git 2.4 or newer for the atomic push to be taken.
+ */
+public class AtomicPushIT {
+
+    @Rule
+    public JenkinsRule jenkinsRule = new JenkinsRule();
+    private List<Repository> repositories;
+
+    @Before
+    public void setUp() throws Exception {
+        repositories = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (Repository repo : repositories) {
+            TestUtilsFactory.destroyRepo(repo);
+        }
+    }
+
+    @Test
+    public void atomicPush_integratesAndDeletesDevelopmentBranch() throws Exception {
+        assumeTrue("Git 2.4 or newer is needed for atomic pushes.", gitSupportsAtomicPush());
+        Repository repository = TestUtilsFactory.createValidRepository("test-repo");
+        repositories.add(repository);
+        final int COMMIT_COUNT_BEFORE_EXECUTION = TestUtilsFactory.countCommits(repository);
+
+        FreeStyleProject project = TestUtilsFactory.configurePretestedIntegrationPlugin(jenkinsRule, STRATEGY_TYPE.SQUASH, repository);
+        PretestedIntegrationBuildWrapper wrapper = project.getBuildWrappersList().get(PretestedIntegrationBuildWrapper.class);
+        ((GitBridge) wrapper.scmBridge).setAtomicPush(true);
+        TestUtilsFactory.triggerProject(project);
+        jenkinsRule.waitUntilNoActivityUpTo(60000);
+
+        FreeStyleBuild build = project.getLastBuild();
+        assertEquals("Unexpected build result.", Result.SUCCESS, build.getResult());
+        assertEquals("Commit count missmatch.", COMMIT_COUNT_BEFORE_EXECUTION + 1, TestUtilsFactory.countCommits(repository));
+        assertFalse("Development branch should have been deleted.", TestUtilsFactory.branchExists(repository, "ready/feature_1"));
+        jenkinsRule.assertLogContains("Done pushing changes and deleting development branch atomically", build);
+        jenkinsRule.assertLogNotContains("falling back to separate pushes", build);
+    }
+
+    private static boolean gitSupportsAtomicPush() throws Exception {
+        Process process = new ProcessBuilder("git", "--version").redirectErrorStream(true).start();
+        String version = IOUtils.toString(process.getInputStream());
+        process.waitFor();
+        Matcher matcher = Pattern.compile("(\\d+)\\.(\\d+)").matcher(version);
+        if (!matcher.find()) {
+            return false;
+        }
+        int major = Integer.parseInt(matcher.group(1));
+        int minor = Integer.parseInt(matcher.group(2));
+        return major > 2 || (major == 2 && minor >= 4);
+    }
+}
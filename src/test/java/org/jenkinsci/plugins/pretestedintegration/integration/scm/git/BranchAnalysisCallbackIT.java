@@ -0,0 +1,96 @@
+package org.jenkinsci.plugins.pretestedintegration.integration.scm.git;
+
+import hudson.model.TaskListener;
+import java.io.File;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.BranchAnalysis;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.BranchAnalysisCallback;
+import org.junit.After;
+import org.junit.Test;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+public class BranchAnalysisCallbackIT {
+
+    private static final String FOLDER_PREFIX = "BranchAnalysis_";
+    private File dir;
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtilsFactory.destroyDirectory(dir);
+    }
+
+    @Test
+    public void analyses_branch_in_one_pass() throws Exception {
+        dir = new File(FOLDER_PREFIX + "twoCommits");
+        Git git = Git.init().setDirectory(dir).call();
+        File testFile = new File(dir + "/file");
+        File otherFile = new File(dir + "/other");
+
+        // First commit to master
+        FileUtils.writeStringToFile(testFile, "master commit 1");
+        git.add().addFilepattern("file").call();
+        git.commit().setMessage("master commit 1").call();
+
+        // Two commits on a branch, touching two files
+        git.checkout().setCreateBranch(true).setName("branch").call();
+        FileUtils.writeStringToFile(testFile, "branch commit 1", true);
+        git.add().addFilepattern("file").call();
+        git.commit().setMessage("branch commit 1").call();
+        FileUtils.writeStringToFile(otherFile, "branch commit 2");
+        git.add().addFilepattern("other").call();
+        ObjectId tip = git.commit().setMessage("branch commit 2").setAuthor(TestUtilsFactory.AUTHOR_NAME, TestUtilsFactory.AUTHOR_EMAIL).call();
+
+        // Master moves on
+        git.checkout().setName("master").call();
+        FileUtils.writeStringToFile(testFile, "master commit 2");
+        git.add().addFilepattern("file").call();
+        git.commit().setMessage("master commit 2").call();
+
+        BranchAnalysis analysis = new BranchAnalysisCallback(TaskListener.NULL, tip, "master", true, 0, null).invoke(git.getRepository(), null);
+        assertEquals("Commit count did not match expectations.", 2, analysis.getCommitCount());
+        assertTrue("Tip author did not match expectations.", analysis.getTipAuthor().startsWith(TestUtilsFactory.AUTHOR_NAME + " <" + TestUtilsFactory.AUTHOR_EMAIL + ">"));
+        assertEquals(BranchAnalysisCallback.COMMIT_LOG_FILE, analysis.getCommitLogFile());
+        assertEquals(0, analysis.getCommitLogOmitted());
+        String commitLog = FileUtils.readFileToString(new File(git.getRepository().getDirectory(), analysis.getCommitLogFile()), "UTF-8");
+        assertTrue("Commit log should contain the branch commits.", commitLog.contains("branch commit 2"));
+        assertTrue("Commit log should contain the branch commits.", commitLog.contains("branch commit 1"));
+        assertFalse("Commit log shouldn't contain integration branch commits.", commitLog.contains("master commit"));
+
+        analysis = new BranchAnalysisCallback(TaskListener.NULL, tip, "master", false, 0, null).invoke(git.getRepository(), null);
+        assertEquals("Commit count did not match expectations.", 2, analysis.getCommitCount());
+        assertFalse(analysis.hasCommitLog());
+        assertNull(analysis.getCommitLogFile());
+
+        // Bounded analysis stops walking
+        analysis = new BranchAnalysisCallback(TaskListener.NULL, tip, "master", false, 1, null).invoke(git.getRepository(), null);
+        assertEquals("Commit count should stop at the limit.", 1, analysis.getCommitCount());
+        assertFalse(analysis.isCommitCountComplete());
+        assertTrue(analysis.satisfies(false, 1));
+        assertFalse(analysis.satisfies(false, 0));
+        assertFalse(analysis.satisfies(true, 1));
+
+        // The ready branch is looked up in the same round-trip
+        assertNull(analysis.getReadyBranch());
+        RefUpdate update = git.getRepository().updateRef(Constants.R_REMOTES + "origin/branch");
+        update.setNewObjectId(tip);
+        update.update();
+        analysis = new BranchAnalysisCallback(TaskListener.NULL, tip, "master", false, 1, "origin/branch").invoke(git.getRepository(), null);
+        assertEquals("origin/branch", analysis.getReadyBranch());
+        assertTrue(analysis.isReadyBranchFound());
+        analysis = new BranchAnalysisCallback(TaskListener.NULL, tip, "master", false, 1, "origin/bran").invoke(git.getRepository(), null);
+        assertFalse(analysis.isReadyBranchFound());
+
+        // The limit is ignored when the commit log is collected
+        analysis = new BranchAnalysisCallback(TaskListener.NULL, tip, "master", true, 1, null).invoke(git.getRepository(), null);
+        assertEquals("Commit count did not match expectations.", 2, analysis.getCommitCount());
+        assertTrue(analysis.isCommitCountComplete());
+        git.close();
+    }
+}
@@ -0,0 +1,72 @@
+package org.jenkinsci.plugins.pretestedintegration.integration.scm.git;
+
+import java.io.File;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.CommitLogWriter;
+import org.junit.After;
+import org.junit.Test;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+public class CommitLogWriterIT {
+
+    private static final String FOLDER_PREFIX = "CommitLogWriter_";
+    private File dir;
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtilsFactory.destroyDirectory(dir);
+    }
+
+    @Test
+    public void writes_commits_in_squash_format() throws Exception {
+        dir = new File(FOLDER_PREFIX + "format");
+        Git git = Git.init().setDirectory(dir).call();
+        String newline = System.getProperty("line.separator");
+        RevCommit commit = git.commit().setMessage("Summary with \"quotes\"" + newline + newline + "Body line").setAuthor(TestUtilsFactory.AUTHOR_NAME, TestUtilsFactory.AUTHOR_EMAIL).call();
+
+        StringBuilder log = new StringBuilder();
+        CommitLogWriter writer = new CommitLogWriter(log, CommitLogWriter.UNLIMITED, true);
+        assertTrue(writer.write(commit));
+        writer.finish();
+
+        String expectedStart = "commit " + commit.getName() + newline
+                + "Author: " + TestUtilsFactory.AUTHOR_NAME + " <" + TestUtilsFactory.AUTHOR_EMAIL + ">" + newline
+                + "Date:   ";
+        assertTrue("Commit header did not match expectations.", log.toString().startsWith(expectedStart));
+        String expectedEnd = newline + newline
+                + "    Summary with 'quotes'" + newline
+                + "    " + newline
+                + "    Body line" + newline + newline;
+        assertTrue("Indented message did not match expectations.", log.toString().endsWith(expectedEnd));
+        git.close();
+    }
+
+    @Test
+    public void summarizes_commits_beyond_the_cap() throws Exception {
+        dir = new File(FOLDER_PREFIX + "cap");
+        Git git = Git.init().setDirectory(dir).call();
+        RevCommit first = git.commit().setMessage("first").call();
+        RevCommit second = git.commit().setMessage("second").call();
+        RevCommit third = git.commit().setMessage("third").call();
+
+        StringBuilder single = new StringBuilder();
+        new CommitLogWriter(single, CommitLogWriter.UNLIMITED, false).write(first);
+
+        StringBuilder log = new StringBuilder();
+        CommitLogWriter writer = new CommitLogWriter(log, single.length(), false);
+        assertTrue(writer.write(first));
+        assertFalse(writer.write(second));
+        assertFalse(writer.write(third));
+        writer.finish();
+
+        assertEquals(1, writer.getWritten());
+        assertEquals(2, writer.getOmitted());
+        assertTrue("Commit log should contain the first commit.", log.toString().contains("first"));
+        assertFalse("Commit log shouldn't contain commits beyond the cap.", log.toString().contains("second"));
+        assertTrue("Commit log should end with the trailer.", log.toString().endsWith(String.format("...and 2 more commits%n")));
+        git.close();
+    }
+}
@@ -0,0 +1,86 @@
+package org.jenkinsci.plugins.pretestedintegration.integration.scm.git;
+
+import hudson.model.TaskListener;
+import java.io.File;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.FindConflictsCallback;
+import org.junit.After;
+import org.junit.Test;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+public class FindConflictsCallbackIT {
+
+    private static final String FOLDER_PREFIX = "FindConflicts_";
+    private File dir;
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtilsFactory.destroyDirectory(dir);
+    }
+
+    @Test
+    public void reports_only_files_changed_on_both_sides() throws Exception {
+        dir = new File(FOLDER_PREFIX + "bothSides");
+        Git git = Git.init().setDirectory(dir).call();
+        File testFile = new File(dir + "/file");
+        File otherFile = new File(dir + "/other");
+
+        FileUtils.writeStringToFile(testFile, "master commit 1");
+        FileUtils.writeStringToFile(otherFile, "master commit 1");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("master commit 1").call();
+
+        // The branch changes 'file' and deletes 'other'
+        git.checkout().setCreateBranch(true).setName("branch").call();
+        FileUtils.writeStringToFile(testFile, "branch commit 1");
+        git.rm().addFilepattern("other").call();
+        git.add().addFilepattern("file").call();
+        ObjectId tip = git.commit().setMessage("branch commit 1").call();
+
+        // Master changes both files
+        git.checkout().setName("master").call();
+        FileUtils.writeStringToFile(testFile, "master commit 2");
+        FileUtils.writeStringToFile(otherFile, "master commit 2");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("master commit 2").call();
+
+        List<String> conflicts = new FindConflictsCallback(TaskListener.NULL, tip, "master").invoke(git.getRepository(), null);
+        assertEquals("Only the file changed on both sides is a certain conflict.", 1, conflicts.size());
+        assertTrue(conflicts.contains("file"));
+
+        conflicts = new FindConflictsCallback(TaskListener.NULL, tip, "refs/remotes/origin/master").invoke(git.getRepository(), null);
+        assertTrue("An unknown integration branch can't be checked.", conflicts.isEmpty());
+        git.close();
+    }
+
+    @Test
+    public void reports_nothing_when_attributes_may_set_a_merge_driver() throws Exception {
+        dir = new File(FOLDER_PREFIX + "attributes");
+        Git git = Git.init().setDirectory(dir).call();
+        File testFile = new File(dir + "/sub/file");
+
+        FileUtils.writeStringToFile(testFile, "master commit 1");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("master commit 1").call();
+
+        git.checkout().setCreateBranch(true).setName("branch").call();
+        FileUtils.writeStringToFile(testFile, "branch commit 1");
+        git.add().addFilepattern(".").call();
+        ObjectId tip = git.commit().setMessage("branch commit 1").call();
+
+        // Master changes the file and adds attributes above it
+        git.checkout().setName("master").call();
+        FileUtils.writeStringToFile(testFile, "master commit 2");
+        FileUtils.writeStringToFile(new File(dir + "/.gitattributes"), "file merge=union\n");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("master commit 2").call();
+
+        List<String> conflicts = new FindConflictsCallback(TaskListener.NULL, tip, "master").invoke(git.getRepository(), null);
+        assertTrue("The command line merge may resolve files with attributes.", conflicts.isEmpty());
+        git.close();
+    }
+}
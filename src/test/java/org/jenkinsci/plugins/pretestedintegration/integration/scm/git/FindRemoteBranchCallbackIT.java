@@ -0,0 +1,39 @@
+package org.jenkinsci.plugins.pretestedintegration.integration.scm.git;
+
+import hudson.model.TaskListener;
+import java.io.File;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.FindRemoteBranchCallback;
+import org.junit.After;
+import org.junit.Test;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+public class FindRemoteBranchCallbackIT {
+
+    private static final String FOLDER_PREFIX = "FindRemoteBranch_";
+    private File dir;
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtilsFactory.destroyDirectory(dir);
+    }
+
+    @Test
+    public void finds_only_the_exact_remote_branch() throws Exception {
+        dir = new File(FOLDER_PREFIX + "exact");
+        Git git = Git.init().setDirectory(dir).call();
+        RevCommit commit = git.commit().setMessage("commit 1").call();
+
+        RefUpdate update = git.getRepository().updateRef("refs/remotes/origin/ready/feature_1");
+        update.setNewObjectId(commit);
+        update.forceUpdate();
+
+        assertTrue(new FindRemoteBranchCallback(TaskListener.NULL, "origin/ready/feature_1").invoke(git.getRepository(), null));
+        assertFalse("A prefix of the branch shouldn't match.", new FindRemoteBranchCallback(TaskListener.NULL, "origin/ready").invoke(git.getRepository(), null));
+        assertFalse("A local branch shouldn't match.", new FindRemoteBranchCallback(TaskListener.NULL, "master").invoke(git.getRepository(), null));
+        git.close();
+    }
+}
@@ -55,4 +55,33 @@ public class GetCommitCountFromBranchCallbackIT {
         callback = new GetCommitCountFromBranchCallback(TaskListener.NULL, startCommit, "master");
         assertEquals("Commit count did not match expectations.", new Integer(2), callback.invoke(git.getRepository(), null));
     }
+
+    @Test
+    public void stops_counting_at_limit() throws Exception {
+        dir = new File(FOLDER_PREFIX + "countUpTo");
+        Git git = Git.init().setDirectory(dir).call();
+        File testFile = new File(dir + "/file");
+
+        FileUtils.writeStringToFile(testFile, "master commit 1");
+        git.add().addFilepattern("file").call();
+        git.commit().setMessage("master commit 1").call();
+
+        // Five commits on a branch
+        git.checkout().setCreateBranch(true).setName("branch").call();
+        ObjectId startCommit = null;
+        for (int i = 1; i <= 5; i++) {
+            FileUtils.writeStringToFile(testFile, "branch commit " + i, true);
+            git.add().addFilepattern("file").call();
+            startCommit = git.commit().setMessage("branch commit " + i).call();
+        }
+
+        GetCommitCountFromBranchCallback callback = new GetCommitCountFromBranchCallback(TaskListener.NULL, startCommit, "master", 2);
+        assertEquals("Commit count should stop at the limit.", Integer.valueOf(2), callback.invoke(git.getRepository(), null));
+
+        callback = new GetCommitCountFromBranchCallback(TaskListener.NULL, startCommit, "master", 10);
+        assertEquals("Commit count below the limit should be exact.", Integer.valueOf(5), callback.invoke(git.getRepository(), null));
+
+        callback = new GetCommitCountFromBranchCallback(TaskListener.NULL, startCommit, "master", 0);
+        assertEquals("Commit count without limit should be exact.", Integer.valueOf(5), callback.invoke(git.getRepository(), null));
+    }
 }
@@ -0,0 +1,177 @@
+package org.jenkinsci.plugins.pretestedintegration.integration.scm.git;
+
+import hudson.model.TaskListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.InMemoryMergeCallback;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.InMemoryMergeResult;
+import org.junit.After;
+import org.junit.Test;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+public class InMemoryMergeCallbackIT {
+
+    private static final String FOLDER_PREFIX = "InMemoryMerge_";
+    private static final PersonIdent AUTHOR = new PersonIdent(TestUtilsFactory.AUTHOR_NAME, TestUtilsFactory.AUTHOR_EMAIL);
+    private File dir;
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtilsFactory.destroyDirectory(dir);
+    }
+
+    /**
+     * Creates a repository where master and 'branch' have both moved on from a common commit.
+     * Master is checked out.
+     */
+    private Git createDivergedRepository(String name, String branchContent) throws Exception {
+        dir = new File(FOLDER_PREFIX + name);
+        Git git = Git.init().setDirectory(dir).call();
+        File testFile = new File(dir + "/file");
+        File otherFile = new File(dir + "/other");
+
+        FileUtils.writeStringToFile(testFile, "master commit 1");
+        git.add().addFilepattern("file").call();
+        git.commit().setMessage("master commit 1").call();
+
+        git.checkout().setCreateBranch(true).setName("branch").call();
+        FileUtils.writeStringToFile(testFile, branchContent);
+        git.add().addFilepattern("file").call();
+        git.commit().setMessage("branch commit 1").setAuthor(AUTHOR).call();
+
+        git.checkout().setName("master").call();
+        FileUtils.writeStringToFile(otherFile, "master commit 2");
+        git.add().addFilepattern("other").call();
+        git.commit().setMessage("master commit 2").call();
+        return git;
+    }
+
+    @Test
+    public void squash_creates_single_parent_commit_without_moving_head() throws Exception {
+        Git git = createDivergedRepository("squash", "branch commit 1");
+        ObjectId head = git.getRepository().resolve(Constants.HEAD);
+        ObjectId tip = git.getRepository().resolve("branch");
+
+        InMemoryMergeResult result = new InMemoryMergeCallback(TaskListener.NULL, tip, true, "Squashed commit of the following:\n\n", null, AUTHOR, null).invoke(git.getRepository(), null);
+        assertEquals(InMemoryMergeResult.Status.COMMITTED, result.getStatus());
+        assertEquals("HEAD shouldn't move.", head, git.getRepository().resolve(Constants.HEAD));
+
+        RevWalk walk = new RevWalk(git.getRepository());
+        RevCommit commit = walk.parseCommit(result.getCommitId());
+        assertEquals(1, commit.getParentCount());
+        assertEquals(head, commit.getParent(0).getId());
+        assertEquals(TestUtilsFactory.AUTHOR_NAME, commit.getAuthorIdent().getName());
+        assertTrue(commit.getFullMessage().startsWith("Squashed commit of the following:"));
+        assertTrue(commit.getFullMessage().contains("    branch commit 1"));
+        walk.dispose();
+        git.close();
+    }
+
+    @Test
+    public void merge_creates_two_parent_commit() throws Exception {
+        Git git = createDivergedRepository("merge", "branch commit 1");
+        ObjectId head = git.getRepository().resolve(Constants.HEAD);
+        ObjectId tip = git.getRepository().resolve("branch");
+
+        InMemoryMergeResult result = new InMemoryMergeCallback(TaskListener.NULL, tip, false, "Accumulated commit\n\n", null, AUTHOR, null).invoke(git.getRepository(), null);
+        assertEquals(InMemoryMergeResult.Status.COMMITTED, result.getStatus());
+
+        RevWalk walk = new RevWalk(git.getRepository());
+        RevCommit commit = walk.parseCommit(result.getCommitId());
+        assertEquals(2, commit.getParentCount());
+        assertEquals(head, commit.getParent(0).getId());
+        assertEquals(tip, commit.getParent(1).getId());
+        walk.dispose();
+        git.close();
+    }
+
+    @Test
+    public void reports_conflicts_and_unchanged_results() throws Exception {
+        Git git = createDivergedRepository("conflict", "branch commit 1");
+        // Master changes the same line as the branch
+        FileUtils.writeStringToFile(new File(dir + "/file"), "master commit 3");
+        git.add().addFilepattern("file").call();
+        git.commit().setMessage("master commit 3").call();
+
+        ObjectId tip = git.getRepository().resolve("branch");
+        InMemoryMergeResult result = new InMemoryMergeCallback(TaskListener.NULL, tip, true, "", null, AUTHOR, null).invoke(git.getRepository(), null);
+        assertEquals(InMemoryMergeResult.Status.CONFLICTING, result.getStatus());
+        assertTrue(result.getConflictingPaths().contains("file"));
+
+        ObjectId master = git.getRepository().resolve("master~1");
+        result = new InMemoryMergeCallback(TaskListener.NULL, master, false, "", null, AUTHOR, null).invoke(git.getRepository(), null);
+        assertEquals(InMemoryMergeResult.Status.UNCHANGED, result.getStatus());
+        git.close();
+    }
+
+    @Test
+    public void squash_message_matches_git_merge_squash() throws Exception {
+        dir = new File(FOLDER_PREFIX + "squashMessage");
+        Git git = Git.init().setDirectory(dir).call();
+        FileUtils.writeStringToFile(new File(dir + "/file"), "master commit 1");
+        git.add().addFilepattern("file").call();
+        git.commit().setMessage("master commit 1").setCommitter(committer(1)).call();
+
+        git.checkout().setCreateBranch(true).setName("branch").call();
+        FileUtils.writeStringToFile(new File(dir + "/file"), "branch commit 1");
+        git.add().addFilepattern("file").call();
+        // Shortly after midnight in the author's time zone, and committed at another time
+        PersonIdent author = new PersonIdent(TestUtilsFactory.AUTHOR_NAME, TestUtilsFactory.AUTHOR_EMAIL, new Date(1577817900000L), TimeZone.getTimeZone("GMT+05:30"));
+        git.commit().setMessage("branch commit 1\n\nWith a body\n\n").setAuthor(author).setCommitter(committer(2)).call();
+
+        git.checkout().setCreateBranch(true).setName("side").setStartPoint("master").call();
+        FileUtils.writeStringToFile(new File(dir + "/side"), "side commit 1");
+        git.add().addFilepattern("side").call();
+        git.commit().setMessage("side commit 1").setCommitter(committer(3)).call();
+        git.checkout().setName("branch").call();
+        git.merge().include(git.getRepository().resolve("side")).setCommit(false).setFastForward(MergeCommand.FastForwardMode.NO_FF).call();
+        git.commit().setMessage("Merge side into branch").setCommitter(committer(4)).call();
+
+        git.checkout().setName("master").call();
+        FileUtils.writeStringToFile(new File(dir + "/other"), "master commit 2");
+        git.add().addFilepattern("other").call();
+        git.commit().setMessage("master commit 2").setCommitter(committer(5)).call();
+
+        ObjectId tip = git.getRepository().resolve("branch");
+        InMemoryMergeResult result = new InMemoryMergeCallback(TaskListener.NULL, tip, true, "Squashed commit of the following:\n\n", null, AUTHOR, null).invoke(git.getRepository(), null);
+        assertEquals(InMemoryMergeResult.Status.COMMITTED, result.getStatus());
+        RevWalk walk = new RevWalk(git.getRepository());
+        String message = walk.parseCommit(result.getCommitId()).getFullMessage();
+        assertTrue(message.contains("Date:   Wed Jan 1 00:15:00 2020 +0530"));
+
+        // The message the command line strategy commits
+        runGit("merge", "--squash", "branch");
+        runGit("commit", "-F", ".git/SQUASH_MSG");
+        String expected = walk.parseCommit(git.getRepository().resolve(Constants.HEAD)).getFullMessage();
+        assertEquals(expected, message);
+        walk.dispose();
+        git.close();
+    }
+
+    private static PersonIdent committer(int minutes) {
+        return new PersonIdent("Committer", "committer@example.com", new Date(1577800000000L + minutes * 60000L), TimeZone.getTimeZone("UTC"));
+    }
+
+    private void runGit(String... args) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.addAll(Arrays.asList("git", "-c", "user.name=Committer", "-c", "user.email=committer@example.com"));
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command).directory(dir).redirectErrorStream(true).start();
+        String output = IOUtils.toString(process.getInputStream());
+        assertEquals("git " + command + " failed: " + output, 0, process.waitFor());
+    }
+}
@@ -0,0 +1,76 @@
+package org.jenkinsci.plugins.pretestedintegration.integration.scm.git;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import java.io.File;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import static org.jenkinsci.plugins.pretestedintegration.integration.scm.git.TestUtilsFactory.STRATEGY_TYPE;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+
+/**
+ * Integrates a ready branch into a generated repository with a deep history, many files and thousands of other branches.
+ */
+public class LargeRepositoryIT {
+
+    private static final String FOLDER_PREFIX = "LargeRepository_";
+    private static final int BRANCH_COUNT = 2000;
+
+    @Rule
+    public JenkinsRule jenkinsRule = new JenkinsRule();
+    private Repository repository;
+    private File workDir;
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtilsFactory.destroyRepo(repository);
+        if (workDir != null) {
+            TestUtilsFactory.destroyDirectory(workDir);
+        }
+    }
+
+    @Test
+    public void integratesReadyBranch_amongThousandsOfBranches() throws Exception {
+        SyntheticRepositoryGenerator generator = new SyntheticRepositoryGenerator()
+                .setSeed(25)
+                .setHistoryDepth(2000)
+                .setMergeDensity(0.1)
+                .setBranchCount(BRANCH_COUNT)
+                .setBranchDepth(3)
+                .setFileCount(1000)
+                .setBranchPrefix("feature/branch-")
+                .setPack(true);
+        repository = generator.generate(new File(FOLDER_PREFIX + "repo.git"));
+        ObjectId masterBefore = repository.resolve("master");
+
+        // The only ready branch, on top of master so it merges cleanly
+        workDir = new File(FOLDER_PREFIX + "workDir");
+        Git git = Git.cloneRepository().setURI("file:///" + repository.getDirectory().getAbsolutePath()).setDirectory(workDir).call();
+        git.checkout().setCreateBranch(true).setName("ready/feature_1").call();
+        FileUtils.writeStringToFile(new File(workDir, SyntheticRepositoryGenerator.getFilePath(0)), "ready branch commit\n");
+        git.add().addFilepattern(SyntheticRepositoryGenerator.getFilePath(0)).call();
+        git.commit().setMessage("Ready branch commit").setAuthor(TestUtilsFactory.AUTHOR_NAME, TestUtilsFactory.AUTHOR_EMAIL).call();
+        git.push().add("ready/feature_1").call();
+        git.close();
+
+        FreeStyleProject project = TestUtilsFactory.configurePretestedIntegrationPlugin(jenkinsRule, STRATEGY_TYPE.SQUASH, repository, false);
+        jenkinsRule.assertBuildStatus(Result.SUCCESS, project.scheduleBuild2(0).get());
+
+        RevWalk walk = new RevWalk(repository);
+        RevCommit head = walk.parseCommit(repository.resolve("master"));
+        walk.dispose();
+        assertEquals("The integration should be a single commit on top of master.", masterBefore, head.getParent(0).getId());
+        assertFalse("Development branch should be deleted.", TestUtilsFactory.branchExists(repository, "ready/feature_1"));
+        assertEquals("The other branches should be left alone.", BRANCH_COUNT + 1, repository.getRefDatabase().getRefs(Constants.R_HEADS).size());
+    }
+}
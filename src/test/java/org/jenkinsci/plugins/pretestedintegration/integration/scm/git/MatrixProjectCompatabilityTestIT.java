@@ -16,12 +16,12 @@ import hudson.util.RunList;
 import java.io.File;
 import java.util.Collections;
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.jgit.api.CreateBranchCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.lib.Repository;
 import org.junit.After;
-import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.JenkinsRule;
@@ -100,6 +100,10 @@ public class MatrixProjectCompatabilityTestIT {
         jenkinsRule.waitUntilNoActivityUpTo(60000);
         
         assertEquals("2 runs for this particular matrix build", 2, project.getLastBuild().getRuns().size());
+        for (MatrixRun run : project.getLastBuild().getRuns()) {
+            jenkinsRule.assertLogContains("Reusing integration commit", run);
+        }
+        assertTrue("The shared integration commit should be deleted.", repository.getRefDatabase().getRefs("refs/pretested/").isEmpty());
      
         String readmeFileContents = FileUtils.readFileToString(new File("test-repo/readme"));
         assertEquals(readmeFromIntegration, readmeFileContents);
@@ -115,14 +119,11 @@ public class MatrixProjectCompatabilityTestIT {
     }
     
     /**
-     * 
-     * TODO: How do we solve this one.
-     * 
-     * We need to test and make our plugin not spawn 2 failed runs if the parent job fails with a merge conflict
+     * The matrix build integrates once before any configuration is built,
+     * so a merge conflict fails the matrix build without spawning any runs.
      * @throws Exception 
      */
     @Test
-    @Ignore
     public void oneBuildBasicMergeFailure() throws Exception {
         repository = TestUtilsFactory.createRepositoryWithMergeConflict("test-repo");
 
@@ -0,0 +1,167 @@
+package org.jenkinsci.plugins.pretestedintegration.integration.scm.git;
+
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.jenkinsci.plugins.pretestedintegration.PretestedIntegrationBuildWrapper;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.GitBridge;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.PushRetryAction;
+import static org.jenkinsci.plugins.pretestedintegration.integration.scm.git.TestUtilsFactory.STRATEGY_TYPE;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Tests what happens when the integration branch moves while the integration is being built,
+ * so the push of the integration is rejected.
+ */
+public class PushRetryIT {
+
+    private static final String FOLDER_PREFIX = "PushRetry_";
+
+    @Rule
+    public JenkinsRule jenkinsRule = new JenkinsRule();
+    private List<Repository> repositories;
+    private File workDir;
+    private ObjectId movedHead;
+
+    @Before
+    public void setUp() throws Exception {
+        repositories = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (Repository repo : repositories) {
+            TestUtilsFactory.destroyRepo(repo);
+        }
+        if (workDir != null) {
+            TestUtilsFactory.destroyDirectory(workDir);
+        }
+    }
+
+    @Test
+    public void movedIntegrationBranch_failsBuild_withoutRetries_whenTheContentWasNotBuilt() throws Exception {
+        Repository repository = TestUtilsFactory.createValidRepository(FOLDER_PREFIX + "noRetries");
+        repositories.add(repository);
+
+        FreeStyleProject project = configure(repository, 0, true);
+        FreeStyleBuild build = jenkinsRule.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0).get());
+
+        jenkinsRule.assertLogContains("since the integration was built. Integrating again", build);
+        jenkinsRule.assertLogContains("gives content that wasn't built, not pushing it.", build);
+        assertEquals("The integration branch should only have the commit pushed during the build.", movedHead, repository.resolve("master"));
+        assertTrue("Development branch should be kept.", TestUtilsFactory.branchExists(repository, "ready/feature_1"));
+        PushRetryAction retry = build.getAction(PushRetryAction.class);
+        assertNotNull("Integrating again under the lease should be recorded as a retry.", retry);
+        assertEquals(1, retry.getRetries());
+    }
+
+    @Test
+    public void movedIntegrationBranch_isIntegratedAgainUnderTheLease_withoutRetries() throws Exception {
+        Repository repository = TestUtilsFactory.createValidRepository(FOLDER_PREFIX + "underLease");
+        repositories.add(repository);
+
+        FreeStyleProject project = configure(repository, 0, false);
+        FreeStyleBuild build = jenkinsRule.assertBuildStatus(Result.SUCCESS, project.scheduleBuild2(0).get());
+
+        jenkinsRule.assertLogContains("Integrating again gives exactly the content that was built", build);
+        jenkinsRule.assertLogNotContains("Push rejected", build);
+        RevWalk walk = new RevWalk(repository);
+        RevCommit head = walk.parseCommit(repository.resolve("master"));
+        assertEquals("The integration should be pushed on top of the moved integration branch.", movedHead, head.getParent(0).getId());
+        walk.dispose();
+        assertFalse("Development branch should be deleted.", TestUtilsFactory.branchExists(repository, "ready/feature_1"));
+    }
+
+    @Test
+    public void rejectedPush_isRetried_whenTheBuiltContentIsUnchanged() throws Exception {
+        Repository repository = TestUtilsFactory.createValidRepository(FOLDER_PREFIX + "sameContent");
+        repositories.add(repository);
+
+        FreeStyleProject project = configure(repository, 1, false);
+        FreeStyleBuild build = jenkinsRule.assertBuildStatus(Result.SUCCESS, project.scheduleBuild2(0).get());
+
+        RevWalk walk = new RevWalk(repository);
+        RevCommit head = walk.parseCommit(repository.resolve("master"));
+        assertEquals("The integration should be pushed on top of the moved integration branch.", movedHead, head.getParent(0).getId());
+        walk.dispose();
+        PushRetryAction retry = build.getAction(PushRetryAction.class);
+        assertNotNull("The retry should be recorded.", retry);
+        assertEquals(1, retry.getRetries());
+    }
+
+    @Test
+    public void rejectedPush_failsBuild_whenTheContentWasNotBuilt() throws Exception {
+        Repository repository = TestUtilsFactory.createValidRepository(FOLDER_PREFIX + "otherContent");
+        repositories.add(repository);
+
+        FreeStyleProject project = configure(repository, 1, true);
+        FreeStyleBuild build = jenkinsRule.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0).get());
+
+        assertEquals("The integration branch should only have the commit pushed during the build.", movedHead, repository.resolve("master"));
+        assertTrue("Development branch should be kept.", TestUtilsFactory.branchExists(repository, "ready/feature_1"));
+        PushRetryAction retry = build.getAction(PushRetryAction.class);
+        assertNotNull("The retry should be recorded when the push fails.", retry);
+        assertEquals(1, retry.getRetries());
+    }
+
+    /**
+     * Configures a job whose build step pushes a commit to the integration branch, as if someone else did while the job was building.
+     * @param repository The integration repository
+     * @param pushRetries The number of push retries
+     * @param changeContent Whether the pushed commit changes any files
+     * @return the job
+     * @throws Exception
+     */
+    private FreeStyleProject configure(final Repository repository, int pushRetries, final boolean changeContent) throws Exception {
+        FreeStyleProject project = TestUtilsFactory.configurePretestedIntegrationPlugin(jenkinsRule, STRATEGY_TYPE.SQUASH, repository, false);
+        PretestedIntegrationBuildWrapper wrapper = project.getBuildWrappersList().get(PretestedIntegrationBuildWrapper.class);
+        ((GitBridge) wrapper.scmBridge).setPushRetries(pushRetries);
+        project.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+                movedHead = moveIntegrationBranch(repository, changeContent);
+                return true;
+            }
+        });
+        return project;
+    }
+
+    private ObjectId moveIntegrationBranch(Repository repository, boolean changeContent) throws IOException {
+        workDir = new File(FOLDER_PREFIX + "workDir");
+        try {
+            Git git = Git.cloneRepository().setURI("file:///" + repository.getDirectory().getAbsolutePath()).setDirectory(workDir).call();
+            if (changeContent) {
+                FileUtils.writeStringToFile(new File(workDir, "other"), "pushed during the build\n");
+                git.add().addFilepattern("other").call();
+            }
+            ObjectId head = git.commit().setMessage("Pushed during the build").call().getId();
+            git.push().call();
+            git.close();
+            return head;
+        } catch (Exception ex) {
+            throw new IOException(ex);
+        }
+    }
+}
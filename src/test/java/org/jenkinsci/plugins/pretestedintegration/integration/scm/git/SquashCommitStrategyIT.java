@@ -111,6 +111,24 @@ public class SquashCommitStrategyIT {
         TestCase.assertEquals("Commit count missmatch.", COMMIT_COUNT_AFTER_EXECUTION, COMMIT_COUNT_BEFORE_EXECUTION);
     }
 
+    @Test
+    public void oneInvalidFeatureBranch_conflictFoundBeforeCheckoutFailsTheBuild() throws Exception {
+        Repository repository = TestUtilsFactory.createRepositoryWithMergeConflict("test-repo");
+        repositories.add(repository);
+        final int COMMIT_COUNT_BEFORE_EXECUTION = TestUtilsFactory.countCommits(repository);
+
+        FreeStyleProject project = TestUtilsFactory.configurePretestedIntegrationPlugin(jenkinsRule, STRATEGY_TYPE.SQUASH, repository);
+        FreeStyleBuild build = jenkinsRule.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0).get());
+
+        // Both sides edited the readme, so the build fails before anything is merged in the workspace
+        jenkinsRule.assertLogContains("conflicts with integration branch", build);
+        jenkinsRule.assertLogContains("[readme]", build);
+        jenkinsRule.assertLogNotContains("merge --squash", build);
+
+        final int COMMIT_COUNT_AFTER_EXECUTION = TestUtilsFactory.countCommits(repository);
+        TestCase.assertEquals("Commit count missmatch.", COMMIT_COUNT_AFTER_EXECUTION, COMMIT_COUNT_BEFORE_EXECUTION);
+    }
+
     @Test
     public void twoFeatureBranchesBothValid_2BuildsAreTriggeredBothBranchesGetIntegratedBuildMarkedAsSUCCESS() throws Exception {
         Repository repository = TestUtilsFactory.createValidRepositoryWith2FeatureBranches("test-repo");
@@ -0,0 +1,343 @@
+package org.jenkinsci.plugins.pretestedintegration.integration.scm.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+
+/**
+ * <h3>Generates large repositories for scale tests and benchmarks</h3>
+ * <p>
+ * Writes the objects straight through an ObjectInserter instead of committing through a workspace,
+ * so repositories with many thousands of commits, branches and files are made in seconds to minutes.
+ * The same seed and settings always give the same repository, down to the commit ids.</p>
+ * <p>
+ * The repository is bare. It has a master branch of the given history depth,
+ * where a share of the commits, given by the merge density, are merges of a side commit.
+ * Each ready branch forks off a random master commit and has the given number of commits on top of it.
+ * Every commit changes a few random files to new random content of the given size.
+ * The files are spread over directories of {@value #FILES_PER_DIRECTORY} files, so a commit only rewrites a few trees.</p>
+ */
+public class SyntheticRepositoryGenerator {
+
+    /**
+     * The number of files in each directory.
+     */
+    public static final int FILES_PER_DIRECTORY = 100;
+
+    /**
+     * The time of the first commit. Commits are a minute apart.
+     */
+    private static final long START_MILLIS = 1400000000000L;
+
+    private static final int AUTHORS = 20;
+
+    private long seed = 0;
+    private int branchCount = 10;
+    private int historyDepth = 100;
+    private int branchDepth = 3;
+    private double mergeDensity = 0.1;
+    private int fileCount = 100;
+    private int blobSize = 256;
+    private int filesPerCommit = 3;
+    private String branchPrefix = "ready/branch-";
+    private boolean pack;
+
+    private Random random;
+    private ObjectInserter inserter;
+    private ObjectReader reader;
+    private long commitTime;
+
+    /**
+     * @param seed The seed of the random generator, the same seed always gives the same repository
+     * @return the generator
+     */
+    public SyntheticRepositoryGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @param branchCount The number of ready branches besides master
+     * @return the generator
+     */
+    public SyntheticRepositoryGenerator setBranchCount(int branchCount) {
+        this.branchCount = branchCount;
+        return this;
+    }
+
+    /**
+     * @param historyDepth The number of commits on the first parent line of master, including the root commit
+     * @return the generator
+     */
+    public SyntheticRepositoryGenerator setHistoryDepth(int historyDepth) {
+        this.historyDepth = historyDepth;
+        return this;
+    }
+
+    /**
+     * @param branchDepth The number of commits on each ready branch
+     * @return the generator
+     */
+    public SyntheticRepositoryGenerator setBranchDepth(int branchDepth) {
+        this.branchDepth = branchDepth;
+        return this;
+    }
+
+    /**
+     * @param mergeDensity The share of master commits, between 0 and 1, that are merges of a side commit
+     * @return the generator
+     */
+    public SyntheticRepositoryGenerator setMergeDensity(double mergeDensity) {
+        this.mergeDensity = mergeDensity;
+        return this;
+    }
+
+    /**
+     * @param fileCount The number of files in the tree of every commit
+     * @return the generator
+     */
+    public SyntheticRepositoryGenerator setFileCount(int fileCount) {
+        this.fileCount = fileCount;
+        return this;
+    }
+
+    /**
+     * @param blobSize The size in bytes of the content of each file version
+     * @return the generator
+     */
+    public SyntheticRepositoryGenerator setBlobSize(int blobSize) {
+        this.blobSize = blobSize;
+        return this;
+    }
+
+    /**
+     * @param filesPerCommit The largest number of files a commit changes
+     * @return the generator
+     */
+    public SyntheticRepositoryGenerator setFilesPerCommit(int filesPerCommit) {
+        this.filesPerCommit = filesPerCommit;
+        return this;
+    }
+
+    /**
+     * @param branchPrefix The prefix of the ready branch names, followed by the zero padded branch index
+     * @return the generator
+     */
+    public SyntheticRepositoryGenerator setBranchPrefix(String branchPrefix) {
+        this.branchPrefix = branchPrefix;
+        return this;
+    }
+
+    /**
+     * @param pack Whether to pack the loose objects when done, like a repository that has been garbage collected
+     * @return the generator
+     */
+    public SyntheticRepositoryGenerator setPack(boolean pack) {
+        this.pack = pack;
+        return this;
+    }
+
+    /**
+     * @param index The index of the ready branch, from 0
+     * @return the short name of the ready branch
+     */
+    public String getBranchName(int index) {
+        return String.format("%s%05d", branchPrefix, index);
+    }
+
+    /**
+     * @param index The index of the file, from 0
+     * @return the path of the file
+     */
+    public static String getFilePath(int index) {
+        return String.format("dir%05d/file%07d.txt", index / FILES_PER_DIRECTORY, index);
+    }
+
+    /**
+     * Generates the repository.
+     * @param dir The directory of the bare repository. Must not exist or be empty.
+     * @return the repository, to be closed by the caller
+     * @throws IOException
+     * @throws GitAPIException
+     */
+    public Repository generate(File dir) throws IOException, GitAPIException {
+        if (fileCount < 1 || historyDepth < 1 || branchDepth < 1) {
+            throw new IllegalArgumentException("File count, history depth and branch depth must be positive");
+        }
+        Repository repo = Git.init().setBare(true).setDirectory(dir).call().getRepository();
+        random = new Random(seed);
+        commitTime = START_MILLIS;
+        inserter = repo.newObjectInserter();
+        reader = repo.newObjectReader();
+        Map<String, ObjectId> refs = new TreeMap<>();
+        try {
+            // The root commit adds all the files
+            ObjectId[] directories = new ObjectId[(fileCount + FILES_PER_DIRECTORY - 1) / FILES_PER_DIRECTORY];
+            for (int d = 0; d < directories.length; d++) {
+                ObjectId[] blobs = new ObjectId[Math.min(FILES_PER_DIRECTORY, fileCount - d * FILES_PER_DIRECTORY)];
+                for (int f = 0; f < blobs.length; f++) {
+                    blobs[f] = insertBlob();
+                }
+                directories[d] = insertDirectory(d, blobs);
+            }
+            ObjectId head = insertCommit(insertRoot(directories), "Initial commit");
+            List<ObjectId> mainline = new ArrayList<>(historyDepth);
+            mainline.add(head);
+
+            for (int i = 1; i < historyDepth; i++) {
+                if (random.nextDouble() < mergeDensity) {
+                    // A merge of a side commit, as made when merging a pull request without fast-forward
+                    ObjectId[] side = directories.clone();
+                    ObjectId sideCommit = insertCommit(change(side), String.format("Side commit %d", i), head);
+                    head = insertCommit(insertRoot(side), String.format("Merge side commit %d", i), head, sideCommit);
+                    directories = side;
+                } else {
+                    head = insertCommit(change(directories), String.format("Commit %d%n%nChanges some files.", i), head);
+                }
+                mainline.add(head);
+            }
+            refs.put(Constants.R_HEADS + "master", head);
+
+            for (int b = 0; b < branchCount; b++) {
+                ObjectId tip = mainline.get(random.nextInt(mainline.size()));
+                ObjectId[] branchDirectories = readRoot(tip);
+                for (int c = 0; c < branchDepth; c++) {
+                    tip = insertCommit(change(branchDirectories), String.format("%s commit %d", getBranchName(b), c), tip);
+                }
+                refs.put(Constants.R_HEADS + getBranchName(b), tip);
+            }
+            inserter.flush();
+        } finally {
+            inserter.release();
+            reader.release();
+        }
+        writePackedRefs(repo, refs);
+        if (pack) {
+            Git.wrap(repo).gc().call();
+        }
+        return repo;
+    }
+
+    /**
+     * Changes up to filesPerCommit random files to new content.
+     * @param directories The directory trees, updated in place
+     * @return the new root tree
+     * @throws IOException
+     */
+    private ObjectId change(ObjectId[] directories) throws IOException {
+        int changes = 1 + random.nextInt(Math.min(filesPerCommit, fileCount));
+        for (int i = 0; i < changes; i++) {
+            int file = random.nextInt(fileCount);
+            int d = file / FILES_PER_DIRECTORY;
+            ObjectId[] blobs = readTree(directories[d]);
+            blobs[file % FILES_PER_DIRECTORY] = insertBlob();
+            directories[d] = insertDirectory(d, blobs);
+        }
+        return insertRoot(directories);
+    }
+
+    private ObjectId insertBlob() throws IOException {
+        byte[] content = new byte[blobSize];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = i % 64 == 63 ? (byte) '\n' : (byte) ('a' + random.nextInt(26));
+        }
+        return inserter.insert(Constants.OBJ_BLOB, content);
+    }
+
+    private ObjectId insertDirectory(int d, ObjectId[] blobs) throws IOException {
+        TreeFormatter tree = new TreeFormatter();
+        for (int f = 0; f < blobs.length; f++) {
+            String path = getFilePath(d * FILES_PER_DIRECTORY + f);
+            tree.append(path.substring(path.indexOf('/') + 1), FileMode.REGULAR_FILE, blobs[f]);
+        }
+        return inserter.insert(tree);
+    }
+
+    private ObjectId insertRoot(ObjectId[] directories) throws IOException {
+        TreeFormatter tree = new TreeFormatter();
+        for (int d = 0; d < directories.length; d++) {
+            String path = getFilePath(d * FILES_PER_DIRECTORY);
+            tree.append(path.substring(0, path.indexOf('/')), FileMode.TREE, directories[d]);
+        }
+        return inserter.insert(tree);
+    }
+
+    /**
+     * Reads the directory trees of a commit.
+     * @param commit The commit
+     * @return the directory trees
+     * @throws IOException
+     */
+    private ObjectId[] readRoot(ObjectId commit) throws IOException {
+        RevWalk walk = new RevWalk(reader);
+        try {
+            return readTree(walk.parseCommit(commit).getTree());
+        } finally {
+            walk.dispose();
+        }
+    }
+
+    private ObjectId[] readTree(ObjectId tree) throws IOException {
+        List<ObjectId> ids = new ArrayList<>();
+        CanonicalTreeParser parser = new CanonicalTreeParser(null, reader, tree);
+        while (!parser.eof()) {
+            ids.add(parser.getEntryObjectId());
+            parser.next();
+        }
+        return ids.toArray(new ObjectId[ids.size()]);
+    }
+
+    private ObjectId insertCommit(ObjectId tree, String message, ObjectId... parents) throws IOException {
+        int author = random.nextInt(AUTHORS);
+        PersonIdent ident = new PersonIdent("Author " + author, "author" + author + "@example.com", new Date(commitTime), TimeZone.getTimeZone("UTC"));
+        commitTime += 60000;
+        CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(tree);
+        commit.setParentIds(parents);
+        commit.setAuthor(ident);
+        commit.setCommitter(ident);
+        commit.setMessage(message);
+        return inserter.insert(commit);
+    }
+
+    /**
+     * Writes all the branches to the packed-refs file, as Git does after a garbage collection.
+     * Thousands of loose ref files would make the generation and every ref lookup slow.
+     * @param repo The repository
+     * @param refs The branches, sorted by name
+     * @throws IOException
+     */
+    private static void writePackedRefs(Repository repo, Map<String, ObjectId> refs) throws IOException {
+        File packedRefs = new File(repo.getDirectory(), Constants.PACKED_REFS);
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(packedRefs.toPath()), StandardCharsets.UTF_8)) {
+            writer.write("# pack-refs with: peeled \n");
+            for (Map.Entry<String, ObjectId> ref : refs.entrySet()) {
+                writer.write(ref.getValue().name() + " " + ref.getKey() + "\n");
+            }
+        }
+        repo.getRefDatabase().refresh();
+    }
+}
@@ -0,0 +1,84 @@
+package org.jenkinsci.plugins.pretestedintegration.integration.scm.git;
+
+import hudson.model.TaskListener;
+import java.io.File;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.BranchAnalysisCallback;
+import org.junit.After;
+import org.junit.Test;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+public class SyntheticRepositoryGeneratorIT {
+
+    private static final String FOLDER_PREFIX = "SyntheticRepository_";
+    private Repository repository;
+    private Repository otherRepository;
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtilsFactory.destroyRepo(repository, otherRepository);
+    }
+
+    @Test
+    public void generates_the_requested_shape() throws Exception {
+        SyntheticRepositoryGenerator generator = new SyntheticRepositoryGenerator()
+                .setSeed(42)
+                .setHistoryDepth(50)
+                .setBranchCount(5)
+                .setBranchDepth(4)
+                .setMergeDensity(0.3)
+                .setFileCount(250);
+        repository = generator.generate(new File(FOLDER_PREFIX + "shape"));
+
+        assertEquals("Branch count did not match expectations.", 6, repository.getRefDatabase().getRefs(Constants.R_HEADS).size());
+
+        RevWalk walk = new RevWalk(repository);
+        RevCommit commit = walk.parseCommit(repository.resolve("master"));
+        RevCommit head = commit;
+        int depth = 1;
+        boolean merges = false;
+        while (commit.getParentCount() > 0) {
+            merges |= commit.getParentCount() > 1;
+            commit = walk.parseCommit(commit.getParent(0));
+            depth++;
+        }
+        assertEquals("History depth did not match expectations.", 50, depth);
+        assertTrue("Expected merge commits on master.", merges);
+
+        TreeWalk tree = new TreeWalk(repository);
+        tree.addTree(head.getTree());
+        tree.setRecursive(true);
+        int files = 0;
+        while (tree.next()) {
+            files++;
+        }
+        tree.release();
+        walk.dispose();
+        assertEquals("File count did not match expectations.", 250, files);
+
+        for (int i = 0; i < 5; i++) {
+            ObjectId tip = repository.resolve(generator.getBranchName(i));
+            int count = new BranchAnalysisCallback(TaskListener.NULL, tip, "master", false, 0, null).invoke(repository, null).getCommitCount();
+            assertEquals("Branch depth did not match expectations.", 4, count);
+        }
+    }
+
+    @Test
+    public void same_seed_gives_the_same_repository() throws Exception {
+        repository = new SyntheticRepositoryGenerator().setSeed(7).generate(new File(FOLDER_PREFIX + "first"));
+        otherRepository = new SyntheticRepositoryGenerator().setSeed(7).generate(new File(FOLDER_PREFIX + "second"));
+        assertEquals("Master did not match expectations.", repository.resolve("master"), otherRepository.resolve("master"));
+        assertEquals("Branch did not match expectations.", repository.resolve("ready/branch-00009"), otherRepository.resolve("ready/branch-00009"));
+
+        TestUtilsFactory.destroyRepo(otherRepository);
+        otherRepository = new SyntheticRepositoryGenerator().setSeed(8).generate(new File(FOLDER_PREFIX + "second"));
+        assertFalse("Expected another seed to give another repository.", repository.resolve("master").equals(otherRepository.resolve("master")));
+    }
+}
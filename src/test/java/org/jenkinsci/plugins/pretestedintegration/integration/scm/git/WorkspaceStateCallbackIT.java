@@ -0,0 +1,108 @@
+package org.jenkinsci.plugins.pretestedintegration.integration.scm.git;
+
+import hudson.model.TaskListener;
+import java.io.File;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.WorkspacePreparationAction;
+import org.jenkinsci.plugins.pretestedintegration.scm.git.WorkspaceStateCallback;
+import org.junit.After;
+import org.junit.Test;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+public class WorkspaceStateCallbackIT {
+
+    private static final String FOLDER_PREFIX = "WorkspaceState_";
+    private File dir;
+
+    @After
+    public void tearDown() throws Exception {
+        TestUtilsFactory.destroyDirectory(dir);
+    }
+
+    @Test
+    public void skips_the_checkout_on_a_detached_head() throws Exception {
+        dir = new File(FOLDER_PREFIX + "detached");
+        Git git = Git.init().setDirectory(dir).call();
+        FileUtils.writeStringToFile(new File(dir + "/file"), "master commit 1");
+        git.add().addFilepattern("file").call();
+        ObjectId master = git.commit().setMessage("master commit 1").call().getId();
+        // As left by the Git plugin
+        git.checkout().setName(master.getName()).call();
+
+        WorkspacePreparationAction state = new WorkspaceStateCallback(TaskListener.NULL, "integration", "master", 1).invoke(git.getRepository(), null);
+        assertEquals(WorkspacePreparationAction.Mode.SKIP, state.getMode());
+        assertOnBranch(git, "integration", master);
+        git.close();
+    }
+
+    @Test
+    public void checks_out_only_the_differing_paths() throws Exception {
+        dir = new File(FOLDER_PREFIX + "partial");
+        Git git = Git.init().setDirectory(dir).call();
+        FileUtils.writeStringToFile(new File(dir + "/file"), "master commit 1");
+        FileUtils.writeStringToFile(new File(dir + "/unchanged"), "master commit 1");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("master commit 1").call();
+
+        git.checkout().setCreateBranch(true).setName("branch").call();
+        FileUtils.writeStringToFile(new File(dir + "/file"), "branch commit 1");
+        FileUtils.writeStringToFile(new File(dir + "/other"), "branch commit 1");
+        git.add().addFilepattern(".").call();
+        ObjectId branch = git.commit().setMessage("branch commit 1").call().getId();
+        git.checkout().setName("master").call();
+
+        WorkspacePreparationAction state = new WorkspaceStateCallback(TaskListener.NULL, "master", "branch", 2).invoke(git.getRepository(), null);
+        assertEquals(WorkspacePreparationAction.Mode.PARTIAL, state.getMode());
+        assertEquals(2, state.getDifferingPaths());
+        assertOnBranch(git, "master", branch);
+        assertEquals("branch commit 1", FileUtils.readFileToString(new File(dir + "/file")));
+        assertEquals("branch commit 1", FileUtils.readFileToString(new File(dir + "/other")));
+        assertTrue("Expected a clean workspace.", git.status().call().isClean());
+        git.close();
+    }
+
+    @Test
+    public void leaves_the_rest_to_a_full_checkout() throws Exception {
+        dir = new File(FOLDER_PREFIX + "full");
+        Git git = Git.init().setDirectory(dir).call();
+        FileUtils.writeStringToFile(new File(dir + "/file"), "master commit 1");
+        git.add().addFilepattern("file").call();
+        ObjectId master = git.commit().setMessage("master commit 1").call().getId();
+
+        git.checkout().setCreateBranch(true).setName("branch").call();
+        FileUtils.writeStringToFile(new File(dir + "/file"), "branch commit 1");
+        FileUtils.writeStringToFile(new File(dir + "/other"), "branch commit 1");
+        git.add().addFilepattern(".").call();
+        ObjectId branch = git.commit().setMessage("branch commit 1").call().getId();
+
+        // Too many differing paths
+        WorkspacePreparationAction state = new WorkspaceStateCallback(TaskListener.NULL, "master", "master", 1).invoke(git.getRepository(), null);
+        assertEquals(WorkspacePreparationAction.Mode.FULL, state.getMode());
+        assertOnBranch(git, "branch", branch);
+
+        // Unknown remote branch
+        state = new WorkspaceStateCallback(TaskListener.NULL, "master", "refs/remotes/origin/master", 1).invoke(git.getRepository(), null);
+        assertEquals(WorkspacePreparationAction.Mode.FULL, state.getMode());
+
+        // Local changes, even on the integration branch head
+        git.checkout().setName("master").call();
+        FileUtils.writeStringToFile(new File(dir + "/file"), "local change");
+        state = new WorkspaceStateCallback(TaskListener.NULL, "master", "master", 2).invoke(git.getRepository(), null);
+        assertEquals(WorkspacePreparationAction.Mode.FULL, state.getMode());
+        assertEquals("local change", FileUtils.readFileToString(new File(dir + "/file")));
+        assertEquals(master, git.getRepository().resolve(Constants.HEAD));
+        git.close();
+    }
+
+    private static void assertOnBranch(Git git, String branch, ObjectId commit) throws Exception {
+        Ref head = git.getRepository().getRef(Constants.HEAD);
+        assertTrue("Expected HEAD on a branch.", head.isSymbolic());
+        assertEquals(Constants.R_HEADS + branch, head.getTarget().getName());
+        assertEquals(commit, head.getObjectId());
+    }
+}
@@ -0,0 +1,66 @@
+package org.jenkinsci.plugins.pretestedintegration.unit;
+
+import hudson.EnvVars;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.TaskListener;
+import java.io.File;
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.pretestedintegration.IntegrationContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class IntegrationContextTest {
+
+    @Rule
+    public JenkinsRule rule = new JenkinsRule();
+
+    @Test
+    public void testShouldKeepOneContextPerBuild() throws Exception {
+        FreeStyleProject project = rule.createFreeStyleProject();
+        FreeStyleBuild build = rule.buildAndAssertSuccess(project);
+
+        IntegrationContext context = IntegrationContext.of(build);
+        assertSame(context, IntegrationContext.of(build));
+        IntegrationContext.clear(build);
+        assertNotSame(context, IntegrationContext.of(build));
+    }
+
+    @Test
+    public void testShouldNotPersistContext() throws Exception {
+        FreeStyleProject project = rule.createFreeStyleProject();
+        FreeStyleBuild build = rule.buildAndAssertSuccess(project);
+
+        IntegrationContext.of(build).put(String.class, "cached");
+        build.save();
+        String buildXml = FileUtils.readFileToString(new File(build.getRootDir(), "build.xml"));
+        assertFalse(buildXml.contains("IntegrationContext"));
+    }
+
+    @Test
+    public void testShouldResolveEnvironmentOnce() throws Exception {
+        FreeStyleProject project = rule.createFreeStyleProject();
+        FreeStyleBuild build = rule.buildAndAssertSuccess(project);
+
+        IntegrationContext context = IntegrationContext.of(build);
+        EnvVars environment = context.getEnvironment(build, TaskListener.NULL);
+        assertSame(environment, context.getEnvironment(build, TaskListener.NULL));
+    }
+
+    @Test
+    public void testShouldCacheValuesByType() throws Exception {
+        FreeStyleProject project = rule.createFreeStyleProject();
+        FreeStyleBuild build = rule.buildAndAssertSuccess(project);
+
+        IntegrationContext context = IntegrationContext.of(build);
+        assertNull(context.get(String.class));
+        String value = "cached";
+        context.put(String.class, value);
+        assertSame(value, IntegrationContext.of(build).get(String.class));
+    }
+}
@@ -0,0 +1,96 @@
+package org.jenkinsci.plugins.pretestedintegration.unit;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.jenkinsci.plugins.pretestedintegration.IntegrationLease;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IntegrationLeaseTest {
+
+    @Test
+    public void testShouldTimeOutWhileLeaseIsHeld() throws Exception {
+        final String key = IntegrationLease.key("file:///repo.git", "timeout");
+        IntegrationLease lease = IntegrationLease.acquire(key, 0);
+        assertNotNull(lease);
+        assertEquals(-1, lease.getHoldMillis());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Callable<IntegrationLease> other = new Callable<IntegrationLease>() {
+                @Override
+                public IntegrationLease call() throws Exception {
+                    IntegrationLease otherLease = IntegrationLease.acquire(key, 50);
+                    if (otherLease != null) {
+                        otherLease.release();
+                    }
+                    return otherLease;
+                }
+            };
+            assertNull(executor.submit(other).get());
+
+            lease.release();
+            assertTrue(lease.getHoldMillis() >= 0);
+            assertNotNull(executor.submit(other).get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testShouldNotShareLeasesBetweenBranches() throws Exception {
+        IntegrationLease master = IntegrationLease.acquire(IntegrationLease.key("file:///repo.git", "master"), 0);
+        IntegrationLease release = IntegrationLease.acquire(IntegrationLease.key("file:///repo.git", "release"), 0);
+        assertNotNull(master);
+        assertNotNull(release);
+        master.release();
+        release.release();
+        assertEquals(0, IntegrationLease.getQueueLength(master.getKey()));
+    }
+
+    @Test
+    public void testShouldDropReleasedLeases() throws Exception {
+        int leases = IntegrationLease.getLeaseCount();
+        final String key = IntegrationLease.key("file:///repo.git", "pruned");
+        IntegrationLease lease = IntegrationLease.acquire(key, 0);
+        assertEquals(leases + 1, IntegrationLease.getLeaseCount());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<IntegrationLease> waiting = executor.submit(new Callable<IntegrationLease>() {
+                @Override
+                public IntegrationLease call() throws Exception {
+                    return IntegrationLease.acquire(key, 10000);
+                }
+            });
+            while (IntegrationLease.getQueueLength(key) == 0) {
+                Thread.sleep(10);
+            }
+            // Kept for the waiting build
+            lease.release();
+            assertEquals(leases + 1, IntegrationLease.getLeaseCount());
+
+            final IntegrationLease next = waiting.get();
+            assertNotNull(next);
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    next.release();
+                }
+            }).get();
+            assertEquals(leases, IntegrationLease.getLeaseCount());
+
+            // A dropped lease can be acquired again
+            IntegrationLease again = IntegrationLease.acquire(key, 0);
+            assertNotNull(again);
+            again.release();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.jenkinsci.plugins.pretestedintegration.unit;
+
+import hudson.XmlFile;
+import java.io.File;
+import org.jenkinsci.plugins.pretestedintegration.IntegrationResultCache;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IntegrationResultCacheTest {
+
+    @Rule
+    public JenkinsRule rule = new JenkinsRule();
+
+    @Test
+    public void testShouldRememberOutcomeByKey() throws Exception {
+        IntegrationResultCache cache = IntegrationResultCache.get();
+        String key = IntegrationResultCache.key("repo", "head", "tip", "strategy");
+        assertNull(cache.lookup(key));
+
+        cache.record(new IntegrationResultCache.Entry(key, IntegrationResultCache.Outcome.MERGE_FAILED, null, "job #1"));
+        assertEquals(IntegrationResultCache.Outcome.MERGE_FAILED, IntegrationResultCache.get().lookup(key).getOutcome());
+        assertEquals("job #1", cache.lookup(key).getBuild());
+        assertNull(cache.lookup(IntegrationResultCache.key("repo", "head", "tip", "other strategy")));
+        assertNull(cache.lookup(IntegrationResultCache.key("other repo", "head", "tip", "strategy")));
+    }
+
+    @Test
+    public void testShouldPersistUnderJenkinsHome() throws Exception {
+        String key = IntegrationResultCache.key("repo", "head", "tip", "strategy");
+        IntegrationResultCache.get().record(new IntegrationResultCache.Entry(key, IntegrationResultCache.Outcome.BUILD_SUCCEEDED, "commit", "job #2"));
+
+        XmlFile file = new XmlFile(new File(rule.jenkins.getRootDir(), IntegrationResultCache.class.getName() + ".xml"));
+        IntegrationResultCache.get().save();
+        assertTrue(file.exists());
+        IntegrationResultCache loaded = (IntegrationResultCache) file.read();
+        assertEquals("commit", loaded.lookup(key).getCommit());
+    }
+
+    @Test
+    public void testShouldNotSaveOnEveryRecord() throws Exception {
+        XmlFile file = new XmlFile(new File(rule.jenkins.getRootDir(), IntegrationResultCache.class.getName() + ".xml"));
+        IntegrationResultCache cache = IntegrationResultCache.get();
+        String key = IntegrationResultCache.key("repo", "head", "tip", "strategy");
+        cache.record(new IntegrationResultCache.Entry(key, IntegrationResultCache.Outcome.BUILD_FAILED, "commit", "job #3"));
+        assertFalse("Expected the save to be delayed.", file.exists());
+
+        cache.record(new IntegrationResultCache.Entry(key, IntegrationResultCache.Outcome.BUILD_FAILED, "commit", "job #4"));
+        assertEquals("Expected a known outcome to change nothing.", "job #3", cache.lookup(key).getBuild());
+    }
+
+    @Test
+    public void testShouldForgetOutcome() throws Exception {
+        IntegrationResultCache cache = IntegrationResultCache.get();
+        String key = IntegrationResultCache.key("repo", "head", "tip", "strategy");
+        cache.record(new IntegrationResultCache.Entry(key, IntegrationResultCache.Outcome.MERGE_FAILED, null, "job #5"));
+        assertTrue(cache.lookup(key).getRecorded() <= System.currentTimeMillis());
+
+        cache.forget(key);
+        assertNull(cache.lookup(key));
+        cache.save();
+        assertNull(((IntegrationResultCache) new XmlFile(new File(rule.jenkins.getRootDir(), IntegrationResultCache.class.getName() + ".xml")).read()).lookup(key));
+    }
+}
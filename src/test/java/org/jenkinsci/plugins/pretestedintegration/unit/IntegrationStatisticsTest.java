@@ -0,0 +1,82 @@
+package org.jenkinsci.plugins.pretestedintegration.unit;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jenkinsci.plugins.pretestedintegration.IntegrationStatistics;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+public class IntegrationStatisticsTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Test
+    public void testShouldSummarizeWindows() {
+        IntegrationStatistics statistics = new IntegrationStatistics();
+        long now = 100 * DAY;
+        statistics.add(new IntegrationStatistics.Record(now - 40 * DAY, "job", "SUCCESS", null, 1000, 0, 0));
+        statistics.add(new IntegrationStatistics.Record(now - 3 * DAY, "job", "FAILURE", "IntegrationFailedException", -1, 0, 0));
+        statistics.add(new IntegrationStatistics.Record(now - 2 * HOUR, "job", "SUCCESS", null, 4000, 2, 500));
+        statistics.add(new IntegrationStatistics.Record(now - HOUR, "other", "NOT_BUILT", "NothingToDoException", 2000, 0, 0));
+
+        IntegrationStatistics.Summary day = statistics.summarize(DAY, now);
+        assertEquals(2, day.getIntegrations());
+        assertEquals(1, day.getSucceeded());
+        assertEquals(Integer.valueOf(1), day.getFailuresByCause().get("NothingToDoException"));
+        assertEquals(2000, day.getMedianLeadTimeMillis());
+        assertEquals(4000, day.getP95LeadTimeMillis());
+        assertEquals(2, day.getPushRetries());
+        assertEquals(500, day.getLeaseWaitMillis());
+
+        // The record older than 30 days was dropped when newer records were added
+        IntegrationStatistics.Summary month = statistics.summarize(30 * DAY, now);
+        assertEquals(3, month.getIntegrations());
+        assertEquals(Integer.valueOf(1), month.getFailuresByCause().get("IntegrationFailedException"));
+        assertEquals(0, statistics.summarize(100 * DAY, now - 35 * DAY).getIntegrations());
+    }
+
+    @Test
+    public void testShouldSummarizeTrendInBuckets() {
+        IntegrationStatistics statistics = new IntegrationStatistics();
+        long now = 100 * DAY;
+        statistics.add(new IntegrationStatistics.Record(now - 3 * DAY - HOUR, "job", "SUCCESS", null, 1000, 0, 0));
+        statistics.add(new IntegrationStatistics.Record(now - 2 * HOUR, "job", "FAILURE", "CommitFailedException", -1, 0, 0));
+        statistics.add(new IntegrationStatistics.Record(now - HOUR / 2, "other", "SUCCESS", null, 2000, 0, 0));
+        statistics.add(new IntegrationStatistics.Record(now - HOUR / 4, "job", "SUCCESS", null, 3000, 0, 0));
+
+        List<IntegrationStatistics.Summary> week = statistics.trend(7 * DAY, DAY, now, null);
+        assertEquals(7, week.size());
+        assertEquals(now - 7 * DAY, week.get(0).getStart().getTime());
+        assertEquals(1, week.get(3).getIntegrations());
+        assertEquals(3, week.get(6).getIntegrations());
+        assertEquals(2, week.get(6).getSucceeded());
+
+        List<IntegrationStatistics.Summary> day = statistics.trend(DAY, HOUR, now, new IntegrationStatistics.Filter() {
+            @Override
+            public boolean include(IntegrationStatistics.Record record) {
+                return record.getJob().equals("job");
+            }
+        });
+        assertEquals(24, day.size());
+        assertEquals(1, day.get(21).getIntegrations());
+        assertEquals(1, day.get(23).getIntegrations());
+        assertEquals(3000, day.get(23).getMedianLeadTimeMillis());
+    }
+
+    @Test
+    public void testShouldSeedOlderRecordsFirst() {
+        IntegrationStatistics statistics = new IntegrationStatistics();
+        long now = 100 * DAY;
+        statistics.add(new IntegrationStatistics.Record(now - HOUR, "job", "SUCCESS", null, 1000, 0, 0));
+        statistics.seed(Arrays.asList(
+                new IntegrationStatistics.Record(now - 2 * DAY, "job", "SUCCESS", null, 1000, 0, 0),
+                new IntegrationStatistics.Record(now - 40 * DAY, "job", "SUCCESS", null, 1000, 0, 0),
+                new IntegrationStatistics.Record(now - 3 * HOUR, "other", "FAILURE", "IntegrationFailedException", -1, 0, 0)));
+
+        assertEquals(2, statistics.summarize(DAY, now).getIntegrations());
+        assertEquals(3, statistics.summarize(30 * DAY, now).getIntegrations());
+        assertEquals(0, statistics.summarize(100 * DAY, now - 35 * DAY).getIntegrations());
+    }
+}
@@ -0,0 +1,23 @@
+package org.jenkinsci.plugins.pretestedintegration.unit;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+import org.jenkinsci.plugins.pretestedintegration.IntegrationTimingAction;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+public class IntegrationTimingActionTest {
+
+    @Test
+    public void testShouldAddUpRepeatedPhasesInOrder() {
+        IntegrationTimingAction action = new IntegrationTimingAction();
+        action.add(IntegrationTimingAction.FETCH, 10);
+        action.add(IntegrationTimingAction.PUSH, 5);
+        action.add(IntegrationTimingAction.PUSH, 7);
+
+        assertEquals(10, action.getMillis(IntegrationTimingAction.FETCH));
+        assertEquals(12, action.getMillis(IntegrationTimingAction.PUSH));
+        assertEquals(-1, action.getMillis(IntegrationTimingAction.REBASE));
+        assertEquals(Arrays.asList(IntegrationTimingAction.FETCH, IntegrationTimingAction.PUSH), new ArrayList<>(action.getPhases().keySet()));
+    }
+}